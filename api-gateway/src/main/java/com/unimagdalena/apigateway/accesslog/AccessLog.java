@@ -0,0 +1,112 @@
+package com.unimagdalena.apigateway.accesslog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de acceso asíncrono. Los hilos de Netty sólo deciden el muestreo y encolan un
+ * evento en el buffer circular; un hilo propio lo vacía por lotes y formatea las líneas en el
+ * logger "ACCESS_LOG". Las respuestas con error y las lentas se registran siempre; las demás,
+ * según la tasa de muestreo.
+ */
+@Component
+public class AccessLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+    private static final Logger accessLogger = LoggerFactory.getLogger("ACCESS_LOG");
+
+    private final AccessLogProperties properties;
+    private final AccessLogRingBuffer buffer;
+    private final long slowThresholdMicros;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final StringBuilder line = new StringBuilder(256);
+    private long reportedDrops;
+    private Scheduler scheduler;
+    private Disposable task;
+
+    public AccessLog(AccessLogProperties properties) {
+        this.properties = properties;
+        this.buffer = new AccessLogRingBuffer(properties.getBufferSize());
+        this.slowThresholdMicros = TimeUnit.NANOSECONDS.toMicros(properties.getSlowThreshold().toNanos());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler = Schedulers.newSingle("access-log-writer", true);
+        task = Flux.interval(properties.getFlushInterval(), properties.getFlushInterval(), scheduler)
+                .subscribe(tick -> flush());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (task != null) {
+            task.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+        flush();
+    }
+
+    // true si la solicitud debe registrarse; se consulta antes de crear el evento
+    public boolean shouldRecord(int status, long durationMicros, boolean failed) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        if (failed || status >= 400 || durationMicros >= slowThresholdMicros) {
+            return true;
+        }
+        return ThreadLocalRandom.current().nextDouble() < properties.getSampleRate();
+    }
+
+    // Nunca bloquea: con el buffer lleno el evento se descarta y se cuenta
+    public void record(AccessLogEvent event) {
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    // Vacía el buffer; lo llama sólo el hilo del escritor (o el cierre)
+    synchronized void flush() {
+        int drained;
+        do {
+            drained = buffer.drain(this::write, properties.getBatchSize());
+        } while (drained == properties.getBatchSize());
+
+        long drops = dropped.sum();
+        if (drops > reportedDrops) {
+            log.warn("Registro de acceso saturado: {} eventos descartados", drops - reportedDrops);
+            reportedDrops = drops;
+        }
+    }
+
+    private void write(AccessLogEvent event) {
+        line.setLength(0);
+        event.appendTo(line);
+        accessLogger.info(line.toString());
+        written.increment();
+    }
+
+    public long writtenCount() {
+        return written.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+}
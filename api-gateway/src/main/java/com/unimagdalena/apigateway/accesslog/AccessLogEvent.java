@@ -0,0 +1,78 @@
+package com.unimagdalena.apigateway.accesslog;
+
+/**
+ * Resumen de una solicitud para el registro de acceso. Sólo guarda referencias y números:
+ * el formateo ocurre después, en el hilo del escritor.
+ */
+public final class AccessLogEvent {
+
+    private final long timestamp;
+    private final String correlationId;
+    private final String method;
+    private final String path;
+    private final int status;
+    private final long durationMicros;
+    private final String cacheStatus;
+    private final String error;
+
+    public AccessLogEvent(long timestamp, String correlationId, String method, String path, int status,
+                          long durationMicros, String cacheStatus, String error) {
+        this.timestamp = timestamp;
+        this.correlationId = correlationId;
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.durationMicros = durationMicros;
+        this.cacheStatus = cacheStatus;
+        this.error = error;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getCorrelationId() {
+        return correlationId;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public String getCacheStatus() {
+        return cacheStatus;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // Una línea clave=valor, fácil de indexar
+    void appendTo(StringBuilder line) {
+        line.append("ts=").append(timestamp)
+                .append(" id=").append(correlationId)
+                .append(" method=").append(method)
+                .append(" path=").append(path)
+                .append(" status=").append(status)
+                .append(" durationMs=").append(durationMicros / 1000).append('.')
+                .append(durationMicros % 1000 / 100);
+        if (cacheStatus != null) {
+            line.append(" cache=").append(cacheStatus);
+        }
+        if (error != null) {
+            line.append(" error=\"").append(error).append('"');
+        }
+    }
+}
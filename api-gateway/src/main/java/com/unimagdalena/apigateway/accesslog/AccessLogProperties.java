@@ -0,0 +1,72 @@
+package com.unimagdalena.apigateway.accesslog;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    private boolean enabled = true;
+
+    // Fracción de solicitudes exitosas y rápidas que se registran; errores y lentas siempre
+    private double sampleRate = 0.1;
+
+    // Solicitudes que tardan al menos esto se registran siempre
+    private Duration slowThreshold = Duration.ofSeconds(1);
+
+    // Capacidad del buffer circular (se redondea a potencia de dos); si se llena, los eventos se descartan
+    private int bufferSize = 8192;
+
+    // Cada cuánto el escritor vacía el buffer y cuántos eventos procesa por lote
+    private Duration flushInterval = Duration.ofMillis(200);
+    private int batchSize = 512;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
@@ -0,0 +1,76 @@
+package com.unimagdalena.apigateway.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Buffer circular acotado sin locks para muchos productores (los hilos de Netty) y un solo
+ * consumidor (el escritor). Cada celda lleva una secuencia que indica si está libre o publicada,
+ * así un productor sólo compite por el índice de escritura con un CAS. Si el buffer está lleno,
+ * offer devuelve false en lugar de bloquear.
+ */
+final class AccessLogRingBuffer {
+
+    private final int mask;
+    private final AtomicReferenceArray<AccessLogEvent> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Sólo lo modifica el consumidor
+    private long head;
+
+    AccessLogRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(AccessLogEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, event);
+                    // Publicar la celda después de escribir el evento
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // El consumidor no ha liberado la celda: buffer lleno
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Entrega hasta maxEvents eventos publicados; sólo debe llamarlo un hilo
+    int drain(Consumer<AccessLogEvent> consumer, int maxEvents) {
+        int drained = 0;
+        while (drained < maxEvents) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            AccessLogEvent event = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            drained++;
+            consumer.accept(event);
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
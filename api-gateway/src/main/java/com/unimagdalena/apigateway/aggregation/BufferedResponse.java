@@ -0,0 +1,61 @@
+package com.unimagdalena.apigateway.aggregation;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Respuesta en memoria para la rama de una ruta compuesta: los filtros de la rama (por ejemplo
+ * el caché) escriben en ella como en la respuesta al cliente, y el cuerpo queda disponible para
+ * combinarlo. No comparte encabezados ni estado con la respuesta real.
+ */
+public class BufferedResponse extends AbstractServerHttpResponse {
+
+    private volatile byte[] body = new byte[0];
+
+    public BufferedResponse(DataBufferFactory bufferFactory) {
+        super(bufferFactory);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    public <T> T getNativeResponse() {
+        throw new IllegalStateException("La respuesta de una rama no tiene respuesta nativa");
+    }
+
+    @Override
+    protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> publisher) {
+        return DataBufferUtils.join(publisher)
+                .doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    body = bytes;
+                })
+                .then();
+    }
+
+    @Override
+    protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> publisher) {
+        return writeWithInternal(Flux.from(publisher).concatMap(Flux::from));
+    }
+
+    @Override
+    protected void applyStatusCode() {
+    }
+
+    @Override
+    protected void applyHeaders() {
+    }
+
+    @Override
+    protected void applyCookies() {
+    }
+}
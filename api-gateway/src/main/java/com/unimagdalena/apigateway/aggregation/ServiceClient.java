@@ -0,0 +1,60 @@
+package com.unimagdalena.apigateway.aggregation;
+
+import com.unimagdalena.apigateway.filter.global.InternalHeadersFilter;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Cliente hacia los servicios registrados en Eureka (URIs lb://servicio). Elige la instancia con
+ * el mismo balanceador que las rutas, así que las llamadas cuentan en la carga de cada instancia,
+ * pero no vuelven a entrar al gateway ni pasan otra vez por sus límites.
+ */
+@Component
+public class ServiceClient {
+
+    private static final List<String> HOP_BY_HOP_HEADERS = List.of(
+            HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING);
+
+    private final WebClient webClient;
+
+    public ServiceClient(WebClient.Builder webClientBuilder, ReactorLoadBalancerExchangeFilterFunction loadBalancer) {
+        this.webClient = webClientBuilder.clone().filter(loadBalancer).build();
+    }
+
+    /**
+     * GET al servicio con los encabezados de la solicitud del intercambio; el estado, los
+     * encabezados y el cuerpo se escriben en su respuesta. Sirve como final de una cadena de
+     * filtros, igual que el enrutamiento del gateway.
+     */
+    public Mono<Void> get(URI uri, ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        return webClient.get()
+                .uri(uri)
+                .headers(headers -> {
+                    headers.addAll(request.getHeaders());
+                    HOP_BY_HOP_HEADERS.forEach(headers::remove);
+                    InternalHeadersFilter.INTERNAL_HEADERS.forEach(headers::remove);
+                })
+                .exchangeToMono(serviceResponse -> {
+                    response.setStatusCode(serviceResponse.statusCode());
+                    serviceResponse.headers().asHttpHeaders().forEach((name, values) -> {
+                        if (!HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)
+                                && !HttpHeaders.CONNECTION.equalsIgnoreCase(name)) {
+                            response.getHeaders().put(name, values);
+                        }
+                    });
+                    return response.writeWith(serviceResponse.bodyToFlux(DataBuffer.class));
+                });
+    }
+}
@@ -0,0 +1,29 @@
+package com.unimagdalena.apigateway.cache;
+
+/**
+ * TTL por clave según la frecuencia con que cambia el contenido. Cada recarga compara el ETag
+ * (hash del cuerpo) con el de la entrada anterior: si no cambió, el TTL se duplica; si cambió,
+ * se reduce a la mitad. Así las claves estables se quedan en caché mucho más tiempo y las
+ * volátiles se recargan seguido, siempre dentro de los límites configurados.
+ */
+public final class AdaptiveTtl {
+
+    private AdaptiveTtl() {
+    }
+
+    public static long next(CacheEntry previous, String etag, long baseTtlMillis, long minTtlMillis,
+                            long maxTtlMillis) {
+        // Sin historial (primera carga, entrada invalidada o restaurada desde disco) se parte del TTL de la regla
+        if (previous == null || previous.getTtlMillis() <= 0 || etag == null
+                || !previous.getStatusCode().is2xxSuccessful()) {
+            return clamp(baseTtlMillis, minTtlMillis, maxTtlMillis);
+        }
+        long previousTtl = previous.getTtlMillis();
+        long ttl = etag.equals(previous.getETag()) ? previousTtl * 2 : previousTtl / 2;
+        return clamp(ttl, minTtlMillis, maxTtlMillis);
+    }
+
+    private static long clamp(long ttlMillis, long minTtlMillis, long maxTtlMillis) {
+        return Math.max(minTtlMillis, Math.min(maxTtlMillis, ttlMillis));
+    }
+}
@@ -0,0 +1,75 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+/**
+ * Captura el cuerpo de una respuesta mientras se transmite al cliente. Cada chunk se agrega
+ * como slice retenido a un CompositeByteBuf, sin copiar; al terminar se compacta una sola vez
+ * en un buffer directo del pool de tamaño exacto. Si el cuerpo supera el límite, la captura
+ * se abandona y la respuesta sigue fluyendo sin almacenarse.
+ */
+public final class BodyCapture {
+
+    private final long limit;
+    private CompositeByteBuf parts;
+    private long size;
+    private boolean abandoned;
+
+    public BodyCapture(long limit) {
+        this.limit = limit;
+    }
+
+    public synchronized void append(DataBuffer buffer) {
+        if (abandoned) {
+            return;
+        }
+        size += buffer.readableByteCount();
+        if (size > limit) {
+            discard();
+            return;
+        }
+        if (parts == null) {
+            parts = PooledByteBufAllocator.DEFAULT.compositeDirectBuffer(Integer.MAX_VALUE);
+        }
+        parts.addComponent(true, NettyDataBufferFactory.toByteBuf(buffer).retainedSlice());
+    }
+
+    public synchronized boolean isAbandoned() {
+        return abandoned;
+    }
+
+    /**
+     * Devuelve el cuerpo capturado (propiedad del llamador) o null si la captura se abandonó.
+     */
+    public synchronized ByteBuf finish() {
+        if (abandoned) {
+            return null;
+        }
+        abandoned = true;
+        if (parts == null || size == 0) {
+            releaseParts();
+            return Unpooled.EMPTY_BUFFER;
+        }
+        ByteBuf stored = PooledByteBufAllocator.DEFAULT.directBuffer((int) size, (int) size);
+        stored.writeBytes(parts, parts.readerIndex(), parts.readableBytes());
+        releaseParts();
+        return stored;
+    }
+
+    public synchronized void discard() {
+        abandoned = true;
+        releaseParts();
+    }
+
+    private void releaseParts() {
+        if (parts != null) {
+            parts.release();
+            parts = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Credencial de los endpoints /admin/cache, que se sirven en el mismo puerto que las rutas
+ * públicas. Se aceptan el token de administración (product-service, operadores) o el secreto de
+ * las réplicas (invalidaciones difundidas por CacheCluster); sin ninguno configurado no hay acceso.
+ */
+@Component
+public class CacheAdminAccess {
+
+    public static final String ADMIN_TOKEN_HEADER = "X-Cache-Admin-Token";
+
+    private final CacheProperties properties;
+    private final CacheCluster cacheCluster;
+
+    public CacheAdminAccess(CacheProperties properties, CacheCluster cacheCluster) {
+        this.properties = properties;
+        this.cacheCluster = cacheCluster;
+    }
+
+    public boolean isAllowed(ServerHttpRequest request) {
+        return hasAdminToken(request) || cacheCluster.isPeerRequest(request);
+    }
+
+    private boolean hasAdminToken(ServerHttpRequest request) {
+        String expected = properties.getAdminToken();
+        String value = request.getHeaders().getFirst(ADMIN_TOKEN_HEADER);
+        return value != null && expected != null && !expected.isBlank() && MessageDigest.isEqual(
+                value.getBytes(StandardCharsets.UTF_8), expected.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,262 @@
+package com.unimagdalena.apigateway.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modo de caché compartido entre réplicas del gateway. Las réplicas se descubren en Eureka y
+ * se reparten las claves con un anillo de hash consistente: un miss se reenvía a la réplica
+ * dueña de la clave, que es la única que la carga y la guarda. Las invalidaciones observadas
+ * en una réplica se difunden a las demás. Los reenvíos llevan el secreto compartido de las
+ * réplicas y la IP del cliente original; activar el modo sin secreto impide arrancar.
+ */
+@Component
+public class CacheCluster {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheCluster.class);
+
+    // Marca las solicitudes reenviadas entre réplicas (con el secreto compartido) para que no se reenvíen otra vez
+    public static final String PEER_HEADER = "X-Cache-Peer";
+    // IP del cliente que recibió la primera réplica; sólo se cree en un reenvío firmado
+    public static final String CLIENT_IP_HEADER = "X-Gateway-Client-Ip";
+    private static final List<String> HOP_BY_HOP_HEADERS = List.of(
+            HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING);
+
+    private final CacheProperties.Cluster properties;
+    private final WebClient webClient;
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+    private final ObjectProvider<Registration> registration;
+
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(List.of(), 0);
+    private volatile Map<String, URI> peers = Map.of();
+    private final LongAdder forwardedRequests = new LongAdder();
+    private final LongAdder failedForwards = new LongAdder();
+    private Scheduler scheduler;
+    private Disposable task;
+
+    public CacheCluster(CacheProperties properties, WebClient.Builder webClientBuilder,
+                        ObjectProvider<DiscoveryClient> discoveryClient, ObjectProvider<Registration> registration) {
+        this.properties = properties.getCluster();
+        this.webClient = webClientBuilder.build();
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // Sin secreto no se reenvía ni se acepta ninguna invalidación difundida: el modo no haría nada
+        if (!hasPeerSecret()) {
+            throw new IllegalStateException(
+                    "gateway.cache.cluster.enabled requiere gateway.cache.cluster.peer-secret (GATEWAY_CACHE_PEER_SECRET)");
+        }
+        scheduler = Schedulers.newSingle("cache-cluster", true);
+        task = Flux.interval(Duration.ZERO, properties.getRefreshInterval(), scheduler)
+                .subscribe(tick -> refreshMembers());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (task != null) {
+            task.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    void refreshMembers() {
+        try {
+            DiscoveryClient client = discoveryClient.getIfAvailable();
+            if (client == null) {
+                return;
+            }
+            Map<String, URI> discovered = new HashMap<>();
+            for (ServiceInstance instance : client.getInstances(properties.getServiceId())) {
+                discovered.put(instance.getInstanceId(), instance.getUri());
+            }
+            updateMembers(discovered);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo actualizar el anillo del caché: {}", e.getMessage());
+        }
+    }
+
+    void updateMembers(Map<String, URI> discovered) {
+        if (discovered.keySet().equals(ring.members())) {
+            peers = Map.copyOf(discovered);
+            return;
+        }
+        ring = new ConsistentHashRing(discovered.keySet(), properties.getVirtualNodes());
+        peers = Map.copyOf(discovered);
+        log.info("Anillo del caché actualizado: {} réplicas {}", discovered.size(), discovered.keySet());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // Sólo una solicitud con el secreto de las réplicas es un reenvío; el encabezado solo no basta
+    public boolean isPeerRequest(ServerHttpRequest request) {
+        String value = request.getHeaders().getFirst(PEER_HEADER);
+        return value != null && hasPeerSecret() && MessageDigest.isEqual(
+                value.getBytes(StandardCharsets.UTF_8), properties.getPeerSecret().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * IP del cliente que originó la solicitud: la de la conexión o, en un reenvío entre réplicas,
+     * la que envió la réplica que lo recibió. Devuelve null si no se conoce.
+     */
+    public String clientIp(ServerHttpRequest request) {
+        if (isPeerRequest(request)) {
+            String forwarded = request.getHeaders().getFirst(CLIENT_IP_HEADER);
+            if (forwarded != null) {
+                return forwarded;
+            }
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : null;
+    }
+
+    private boolean hasPeerSecret() {
+        return properties.getPeerSecret() != null && !properties.getPeerSecret().isBlank();
+    }
+
+    // Réplica dueña de la clave, o null si la clave es local o el modo compartido está apagado
+    public URI ownerOf(String key) {
+        if (!properties.isEnabled() || !hasPeerSecret()) {
+            return null;
+        }
+        String owner = ring.ownerOf(key);
+        if (owner == null || owner.equals(selfId())) {
+            return null;
+        }
+        return peers.get(owner);
+    }
+
+    /**
+     * Obtiene la respuesta de la réplica dueña y la transmite tal cual al cliente.
+     * Falla sin tocar la respuesta si la réplica no contesta a tiempo.
+     */
+    public Mono<Void> forward(URI owner, ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        URI uri = UriComponentsBuilder.fromUri(request.getURI())
+                .scheme(owner.getScheme())
+                .host(owner.getHost())
+                .port(owner.getPort())
+                .build(true)
+                .toUri();
+
+        String clientIp = clientIp(request);
+
+        forwardedRequests.increment();
+        return webClient.get()
+                .uri(uri)
+                .headers(headers -> {
+                    headers.addAll(request.getHeaders());
+                    HOP_BY_HOP_HEADERS.forEach(headers::remove);
+                    headers.set(PEER_HEADER, properties.getPeerSecret());
+                    // La réplica dueña no vuelve a cobrar la cuota, pero conserva la IP del cliente
+                    if (clientIp != null) {
+                        headers.set(CLIENT_IP_HEADER, clientIp);
+                    } else {
+                        headers.remove(CLIENT_IP_HEADER);
+                    }
+                })
+                .httpRequest(httpRequest -> {
+                    HttpClientRequest nativeRequest = httpRequest.getNativeRequest();
+                    nativeRequest.responseTimeout(properties.getForwardTimeout());
+                })
+                .exchangeToMono(peerResponse -> {
+                    response.setStatusCode(peerResponse.statusCode());
+                    peerResponse.headers().asHttpHeaders().forEach((name, values) -> {
+                        if (!HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)
+                                && !HttpHeaders.CONNECTION.equalsIgnoreCase(name)) {
+                            response.getHeaders().put(name, values);
+                        }
+                    });
+                    response.getHeaders().set("X-Cache-Owner", owner.getAuthority());
+                    return response.writeWith(peerResponse.bodyToFlux(DataBuffer.class));
+                })
+                .doOnError(error -> {
+                    failedForwards.increment();
+                    log.warn("Réplica {} no respondió ({}), se carga localmente", owner, error.getMessage());
+                });
+    }
+
+    // Difunde una invalidación a las demás réplicas; cada una sólo la aplica localmente
+    public void broadcastInvalidation(Set<String> tags) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String self = selfId();
+        peers.forEach((id, uri) -> {
+            if (id.equals(self)) {
+                return;
+            }
+            webClient.post()
+                    .uri(uri.resolve("/admin/cache/invalidate"))
+                    // La réplica que recibe sólo acepta invalidaciones con credencial
+                    .header(PEER_HEADER, properties.getPeerSecret())
+                    .bodyValue(Map.of("tags", tags))
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(properties.getForwardTimeout())
+                    .subscribe(
+                            ignored -> log.debug("Invalidación {} enviada a {}", tags, uri),
+                            error -> log.warn("No se pudo enviar la invalidación a {}: {}", uri, error.getMessage()));
+        });
+    }
+
+    public int memberCount() {
+        return ring.members().size();
+    }
+
+    public long forwardedCount() {
+        return forwardedRequests.sum();
+    }
+
+    public long failedForwardCount() {
+        return failedForwards.sum();
+    }
+
+    private String selfId() {
+        Registration self = registration != null ? registration.getIfAvailable() : null;
+        return self != null ? self.getInstanceId() : null;
+    }
+}
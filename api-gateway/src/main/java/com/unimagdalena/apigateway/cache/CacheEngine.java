@@ -0,0 +1,53 @@
+package com.unimagdalena.apigateway.cache;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Motor de almacenamiento detrás de ProductCachingFilterFactory.
+ * Se puede reemplazar declarando otro bean de este tipo.
+ */
+public interface CacheEngine {
+
+    CacheEntry get(String key);
+
+    // Consulta sin registrar el acceso ni afectar las estadísticas
+    CacheEntry peek(String key);
+
+    void put(String key, CacheEntry entry);
+
+    void invalidate(String key);
+
+    // Elimina todas las entradas con la etiqueta dada y devuelve cuántas se borraron
+    int invalidateTag(String tag);
+
+    // Elimina las entradas cuyo recurso (método, ruta y query) empieza con el prefijo dado
+    int invalidatePrefix(String resourcePrefix);
+
+    void clear();
+
+    // Elimina las entradas que ya no pueden servirse y devuelve cuántas se borraron
+    int cleanUp();
+
+    long size();
+
+    long weightedSize();
+
+    long maxWeight();
+
+    Set<String> keys();
+
+    // Recorre las entradas de todos los niveles sin registrar accesos; pensado para consultas administrativas
+    void forEachEntry(BiConsumer<String, CacheEntry> action);
+
+    long hitCount();
+
+    long missCount();
+
+    long evictionCount();
+
+    long expiredCount();
+
+    // Entradas que salieron del caché por la causa dada
+    long removalCount(RemovalCause cause);
+}
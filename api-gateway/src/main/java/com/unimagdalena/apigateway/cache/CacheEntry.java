@@ -0,0 +1,297 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Respuesta almacenada en el caché. El cuerpo vive en un buffer Netty (normalmente directo y
+ * del pool) y se sirve como slices con referencia propia, sin copiarlo en cada hit.
+ * El motor libera el buffer con release() cuando saca la entrada del caché.
+ * Las respuestas 2xx llevan un ETag fuerte para contestar If-None-Match con 304 sin cuerpo.
+ * Los cuerpos de texto pueden llevar además una variante gzip, que se sirve a quien la acepte.
+ */
+public class CacheEntry {
+
+    private final HttpStatusCode statusCode;
+    private final ByteBuf body;
+    // Cuerpo comprimido con gzip, o null si no se comprimió (pequeño o binario)
+    private final ByteBuf gzipBody;
+    // Referencias a la entrada: una del caché más las lecturas que están creando un slice
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final HttpHeaders headers;
+    private final long expirationTime;
+    // TTL con el que se guardó; 0 si no se conoce (entradas restauradas desde disco)
+    private final long ttlMillis;
+    // Límites para servir la entrada vencida mientras se revalida o cuando el servicio falla
+    private final long staleWhileRevalidateUntil;
+    private final long staleIfErrorUntil;
+    private final long weight;
+    private final Set<String> tags;
+    private final String etag;
+    private final String gzipEtag;
+    // Recurso legible (método, ruta y query) al que corresponde la clave del caché
+    private final String resource;
+
+    public CacheEntry(ByteBuf body, HttpHeaders headers, long ttlMillis) {
+        this(HttpStatus.OK, body, headers, ttlMillis, 0, 0, Set.of(), "");
+    }
+
+    public CacheEntry(HttpStatusCode statusCode, ByteBuf body, HttpHeaders headers, long ttlMillis,
+                      long staleWhileRevalidateMillis, long staleIfErrorMillis, Set<String> tags, String resource) {
+        this(statusCode, body, null, headers, ttlMillis, staleWhileRevalidateMillis, staleIfErrorMillis, tags, resource);
+    }
+
+    public CacheEntry(HttpStatusCode statusCode, ByteBuf body, ByteBuf gzipBody, HttpHeaders headers, long ttlMillis,
+                      long staleWhileRevalidateMillis, long staleIfErrorMillis, Set<String> tags, String resource) {
+        this(statusCode, body, gzipBody, headers, tags, resource, ttlMillis, System.currentTimeMillis() + ttlMillis,
+                staleWhileRevalidateMillis, staleIfErrorMillis);
+    }
+
+    private CacheEntry(HttpStatusCode statusCode, ByteBuf body, ByteBuf gzipBody, HttpHeaders headers,
+                       Set<String> tags, String resource, long ttlMillis, long expirationTime,
+                       long staleWhileRevalidateMillis, long staleIfErrorMillis) {
+        this.statusCode = statusCode;
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.headers = new HttpHeaders();
+        this.headers.addAll(headers);
+        this.headers.remove("X-Cache");
+        // Se respeta el ETag del servicio; si no envía uno, se calcula del contenido
+        if (statusCode.is2xxSuccessful() && this.headers.getETag() == null) {
+            this.headers.setETag(ETags.strongETag(body));
+        }
+        this.etag = this.headers.getETag();
+        this.gzipEtag = gzipBody != null ? ETags.encodingVariant(etag, GzipEncoding.GZIP) : null;
+        this.ttlMillis = ttlMillis;
+        this.expirationTime = expirationTime;
+        this.staleWhileRevalidateUntil = expirationTime + staleWhileRevalidateMillis;
+        this.staleIfErrorUntil = expirationTime + staleIfErrorMillis;
+        this.weight = computeWeight(body, gzipBody, this.headers);
+        this.tags = Set.copyOf(tags);
+        this.resource = resource;
+    }
+
+    // Reconstruye una entrada guardada fuera de memoria conservando sus vencimientos absolutos
+    public static CacheEntry restore(HttpStatusCode statusCode, ByteBuf body, ByteBuf gzipBody, HttpHeaders headers,
+                                     long expirationTime, long staleWhileRevalidateUntil, long staleIfErrorUntil,
+                                     Set<String> tags, String resource) {
+        return new CacheEntry(statusCode, body, gzipBody, headers, tags, resource, 0, expirationTime,
+                staleWhileRevalidateUntil - expirationTime, staleIfErrorUntil - expirationTime);
+    }
+
+    public boolean isExpired() {
+        return isExpired(System.currentTimeMillis());
+    }
+
+    public boolean isExpired(long now) {
+        return now > expirationTime;
+    }
+
+    public boolean isStaleWhileRevalidate(long now) {
+        return now <= staleWhileRevalidateUntil;
+    }
+
+    public boolean isUsableOnError(long now) {
+        return now <= staleIfErrorUntil;
+    }
+
+    // Ya no puede servirse de ninguna forma: el barrido puede eliminarla
+    public boolean isEvictable(long now) {
+        return now > Math.max(staleWhileRevalidateUntil, staleIfErrorUntil);
+    }
+
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public long getStaleWhileRevalidateUntil() {
+        return staleWhileRevalidateUntil;
+    }
+
+    public long getStaleIfErrorUntil() {
+        return staleIfErrorUntil;
+    }
+
+    // Encabezados almacenados; no deben modificarse
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public HttpStatusCode getStatusCode() {
+        return statusCode;
+    }
+
+    // Peso en bytes usado por el presupuesto de memoria: cuerpo + nombres y valores de encabezados
+    public long getWeight() {
+        return weight;
+    }
+
+    public Mono<Void> applyCachedResponse(ServerWebExchange exchange, String cacheStatus) {
+        return applyCachedResponse(exchange.getRequest(), exchange.getResponse(), cacheStatus);
+    }
+
+    public Mono<Void> applyCachedResponse(ServerHttpRequest request, ServerHttpResponse response, String cacheStatus) {
+        boolean gzip = gzipBody != null && GzipEncoding.accepts(request);
+        String servedEtag = gzip ? gzipEtag : etag;
+        if (ETags.notModified(request, servedEtag)) {
+            // El cliente ya tiene esta versión: sólo encabezados, sin leer el cuerpo
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            applyHeaders(response, cacheStatus, servedEtag, gzip);
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        ByteBuf slice = retainedSlice(gzip ? gzipBody : body);
+        if (slice == null) {
+            return Mono.error(new ReleasedEntryException());
+        }
+        response.setStatusCode(statusCode);
+        applyHeaders(response, cacheStatus, servedEtag, gzip);
+        if (gzip) {
+            response.getHeaders().setContentLength(slice.readableBytes());
+        }
+
+        return response.writeWith(Mono.just(toDataBuffer(slice, response.bufferFactory())));
+    }
+
+    private void applyHeaders(ServerHttpResponse response, String cacheStatus, String servedEtag, boolean gzip) {
+        HttpHeaders responseHeaders = response.getHeaders();
+        responseHeaders.putAll(this.headers);
+        if (gzipBody != null) {
+            // La respuesta depende de Accept-Encoding: los caches intermedios deben distinguir las variantes
+            responseHeaders.setVary(withAcceptEncoding(responseHeaders.getVary()));
+            if (servedEtag != null) {
+                responseHeaders.setETag(servedEtag);
+            }
+        }
+        if (gzip) {
+            responseHeaders.set(HttpHeaders.CONTENT_ENCODING, GzipEncoding.GZIP);
+        }
+
+        // Agregar encabezados indicativos del caché
+        responseHeaders.set("X-Cache", cacheStatus);
+        responseHeaders.set("X-Cache-Expires", String.valueOf(expirationTime));
+    }
+
+    private static List<String> withAcceptEncoding(List<String> vary) {
+        for (String header : vary) {
+            if (HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(header)) {
+                return vary;
+            }
+        }
+        List<String> merged = new ArrayList<>(vary);
+        merged.add(HttpHeaders.ACCEPT_ENCODING);
+        return merged;
+    }
+
+    public int getBodyLength() {
+        return body.readableBytes();
+    }
+
+    public boolean hasGzipVariant() {
+        return gzipBody != null;
+    }
+
+    // Slice del cuerpo con su propia referencia, o null si la entrada ya fue liberada
+    public ByteBuf retainedBody() {
+        return retainedSlice(body);
+    }
+
+    // Igual que retainedBody() para la variante gzip; null si no tiene o ya fue liberada
+    public ByteBuf retainedGzipBody() {
+        return gzipBody != null ? retainedSlice(gzipBody) : null;
+    }
+
+    private ByteBuf retainedSlice(ByteBuf buffer) {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                return null;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        try {
+            return buffer.retainedSlice();
+        } catch (IllegalReferenceCountException e) {
+            return null;
+        } finally {
+            release();
+        }
+    }
+
+    // Suelta la referencia del caché; el buffer vuelve al pool cuando nadie más lo usa
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            body.release();
+            if (gzipBody != null) {
+                gzipBody.release();
+            }
+        }
+    }
+
+    private static DataBuffer toDataBuffer(ByteBuf slice, DataBufferFactory factory) {
+        if (factory instanceof NettyDataBufferFactory nettyFactory) {
+            return nettyFactory.wrap(slice);
+        }
+        // Respuestas que no son de Netty: copiar y soltar el slice
+        try {
+            byte[] bytes = new byte[slice.readableBytes()];
+            slice.readBytes(bytes);
+            return factory.wrap(bytes);
+        } finally {
+            slice.release();
+        }
+    }
+
+    /**
+     * La entrada fue expulsada y su buffer liberado entre la consulta y la lectura.
+     */
+    public static class ReleasedEntryException extends IllegalStateException {
+        public ReleasedEntryException() {
+            super("La entrada del caché fue liberada antes de servirse");
+        }
+    }
+
+    private static long computeWeight(ByteBuf body, ByteBuf gzipBody, HttpHeaders headers) {
+        long total = body.readableBytes() + (gzipBody != null ? gzipBody.readableBytes() : 0);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            total += header.getKey().getBytes(StandardCharsets.UTF_8).length;
+            for (String value : header.getValue()) {
+                total += value.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return total;
+    }
+}
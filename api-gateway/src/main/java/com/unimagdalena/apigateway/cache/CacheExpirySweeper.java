@@ -0,0 +1,55 @@
+package com.unimagdalena.apigateway.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Component
+public class CacheExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheExpirySweeper.class);
+
+    private final CacheEngine cacheEngine;
+    private final CacheProperties properties;
+    private Scheduler scheduler;
+    private Disposable task;
+
+    public CacheExpirySweeper(CacheEngine cacheEngine, CacheProperties properties) {
+        this.cacheEngine = cacheEngine;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Schedulers.newSingle("cache-sweeper", true);
+        task = Flux.interval(properties.getSweepInterval(), properties.getSweepInterval(), scheduler)
+                .subscribe(tick -> sweep());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (task != null) {
+            task.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    void sweep() {
+        try {
+            int removed = cacheEngine.cleanUp();
+            if (removed > 0) {
+                log.debug("Barrido del caché: {} entradas expiradas eliminadas", removed);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error durante el barrido del caché: {}", e.getMessage());
+        }
+    }
+}
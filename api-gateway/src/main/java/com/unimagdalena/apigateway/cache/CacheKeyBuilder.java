@@ -0,0 +1,46 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Construye la clave del caché a partir del recurso normalizado, el espacio de nombres
+ * (público o del usuario) y los encabezados indicados por Vary. La clave compuesta se reduce
+ * a 128 bits de SHA-256, así todas las claves ocupan lo mismo sin importar el tamaño de la URL
+ * o de los encabezados.
+ */
+public final class CacheKeyBuilder {
+
+    private static final int KEY_BYTES = 16;
+
+    private CacheKeyBuilder() {
+    }
+
+    public static String build(CompiledCacheRule rule, ServerHttpRequest request, String subject) {
+        StringBuilder composite = new StringBuilder(128)
+                .append(rule.cacheKey(request))
+                .append('\n')
+                .append(subject == null ? "public" : "sub:" + subject);
+        for (String header : rule.getVaryHeaders()) {
+            List<String> values = request.getHeaders().getOrEmpty(header);
+            composite.append('\n').append(header).append(':').append(String.join(",", values));
+        }
+        byte[] digest = sha256().digest(composite.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] key = new byte[KEY_BYTES];
+        System.arraycopy(digest, 0, key, 0, KEY_BYTES);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible en esta JVM", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica el estado del caché en Micrometer (y por lo tanto en /actuator/prometheus).
+ * Todos los medidores leen contadores que el motor ya mantiene, así que consultarlos
+ * cuesta lo mismo sin importar cuántas entradas haya.
+ */
+@Component
+public class CacheMetrics {
+
+    private final Timer loadTimer;
+
+    public CacheMetrics(CacheEngine cacheEngine, MeterRegistry registry) {
+        FunctionCounter.builder("gateway.cache.gets", cacheEngine, CacheEngine::hitCount)
+                .tag("result", "hit")
+                .description("Consultas al caché que encontraron una entrada")
+                .register(registry);
+        FunctionCounter.builder("gateway.cache.gets", cacheEngine, CacheEngine::missCount)
+                .tag("result", "miss")
+                .description("Consultas al caché sin una entrada utilizable")
+                .register(registry);
+        for (RemovalCause cause : RemovalCause.values()) {
+            FunctionCounter.builder("gateway.cache.removals", cacheEngine, engine -> engine.removalCount(cause))
+                    .tag("cause", cause.name().toLowerCase(Locale.ROOT))
+                    .description("Entradas que salieron del caché, por causa")
+                    .register(registry);
+        }
+        Gauge.builder("gateway.cache.size", cacheEngine, CacheEngine::size)
+                .description("Entradas en memoria")
+                .register(registry);
+        Gauge.builder("gateway.cache.weight", cacheEngine, CacheEngine::weightedSize)
+                .baseUnit("bytes")
+                .description("Bytes ocupados por cuerpos y encabezados")
+                .register(registry);
+        Gauge.builder("gateway.cache.max.weight", cacheEngine, CacheEngine::maxWeight)
+                .baseUnit("bytes")
+                .description("Presupuesto de memoria del caché")
+                .register(registry);
+        this.loadTimer = Timer.builder("gateway.cache.load")
+                .description("Tiempo de las cargas desde el servicio tras un miss")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void recordLoad(long nanos) {
+        loadTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,54 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Obtiene el usuario de una solicitud para las entradas por usuario del caché.
+ * El token se verifica (firma, vencimiento y emisor) antes de confiar en su claim sub:
+ * un token falsificado nunca debe dar acceso a las entradas de otro usuario.
+ */
+@Component
+public class CachePrincipalResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CachePrincipalResolver.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final ReactiveJwtDecoder jwtDecoder;
+
+    @Autowired
+    public CachePrincipalResolver(CacheProperties properties) {
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder
+                .withJwkSetUri(properties.getPrincipal().getJwkSetUri())
+                .build();
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(properties.getPrincipal().getIssuerUri()));
+        this.jwtDecoder = decoder;
+    }
+
+    public CachePrincipalResolver(ReactiveJwtDecoder jwtDecoder) {
+        this.jwtDecoder = jwtDecoder;
+    }
+
+    // sub del token verificado, o vacío si la solicitud no trae un token válido
+    public Mono<String> subject(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return Mono.empty();
+        }
+        return jwtDecoder.decode(authorization.substring(BEARER_PREFIX.length()).trim())
+                .mapNotNull(Jwt::getSubject)
+                .onErrorResume(error -> {
+                    log.debug("Token no válido para el caché por usuario: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
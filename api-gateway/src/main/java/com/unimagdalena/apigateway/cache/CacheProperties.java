@@ -0,0 +1,318 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "gateway.cache")
+public class CacheProperties {
+
+    // Presupuesto total de memoria del caché (cuerpos + encabezados)
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    // Porcentaje del presupuesto reservado para la ventana de admisión
+    private double windowPercent = 1.0;
+
+    // Frecuencia con la que se eliminan las entradas expiradas
+    private Duration sweepInterval = Duration.ofSeconds(30);
+
+    // Credencial de /admin/cache (encabezado X-Cache-Admin-Token); vacía, sólo las réplicas pueden invalidar
+    private String adminToken = "";
+
+    // Caché compartido entre las réplicas del gateway
+    private Cluster cluster = new Cluster();
+
+    // Segundo nivel en disco que sobrevive a los reinicios
+    private Disk disk = new Disk();
+
+    // Detección de claves populares y precarga antes de su vencimiento
+    private HotKeys hotKeys = new HotKeys();
+
+    // Verificación del JWT para las reglas con entradas por usuario
+    private Principal principal = new Principal();
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public double getWindowPercent() {
+        return windowPercent;
+    }
+
+    public void setWindowPercent(double windowPercent) {
+        this.windowPercent = windowPercent;
+    }
+
+    public Duration getSweepInterval() {
+        return sweepInterval;
+    }
+
+    public void setSweepInterval(Duration sweepInterval) {
+        this.sweepInterval = sweepInterval;
+    }
+
+    public String getAdminToken() {
+        return adminToken;
+    }
+
+    public void setAdminToken(String adminToken) {
+        this.adminToken = adminToken;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public void setCluster(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    public Disk getDisk() {
+        return disk;
+    }
+
+    public void setDisk(Disk disk) {
+        this.disk = disk;
+    }
+
+    public HotKeys getHotKeys() {
+        return hotKeys;
+    }
+
+    public void setHotKeys(HotKeys hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    public Principal getPrincipal() {
+        return principal;
+    }
+
+    public void setPrincipal(Principal principal) {
+        this.principal = principal;
+    }
+
+    public static class Principal {
+
+        // Emisor esperado de los tokens (el realm de Keycloak)
+        private String issuerUri = "http://keycloak:8080/realms/master";
+
+        // Llaves públicas del emisor; se descargan con el primer token
+        private String jwkSetUri = "http://keycloak:8080/realms/master/protocol/openid-connect/certs";
+
+        public String getIssuerUri() {
+            return issuerUri;
+        }
+
+        public void setIssuerUri(String issuerUri) {
+            this.issuerUri = issuerUri;
+        }
+
+        public String getJwkSetUri() {
+            return jwkSetUri;
+        }
+
+        public void setJwkSetUri(String jwkSetUri) {
+            this.jwkSetUri = jwkSetUri;
+        }
+    }
+
+    public static class HotKeys {
+
+        // Número de claves populares que se siguen y se precargan
+        private int topK = 50;
+
+        // Contadores por fila del Count-Min sketch
+        private int sketchWidth = 4096;
+
+        private boolean prefetchEnabled = true;
+
+        // Frecuencia con la que se revisan las claves populares
+        private Duration prefetchInterval = Duration.ofSeconds(5);
+
+        // Una clave popular se recarga cuando le queda menos que esto para vencer
+        private Duration prefetchAhead = Duration.ofSeconds(15);
+
+        // Solicitudes recientes (estimadas) para que una clave cuente como popular
+        private long minHits = 10;
+
+        // Una clave sin solicitudes en este tiempo deja de ser popular y no se precarga
+        private Duration maxIdle = Duration.ofSeconds(30);
+
+        public int getTopK() {
+            return topK;
+        }
+
+        public void setTopK(int topK) {
+            this.topK = topK;
+        }
+
+        public int getSketchWidth() {
+            return sketchWidth;
+        }
+
+        public void setSketchWidth(int sketchWidth) {
+            this.sketchWidth = sketchWidth;
+        }
+
+        public boolean isPrefetchEnabled() {
+            return prefetchEnabled;
+        }
+
+        public void setPrefetchEnabled(boolean prefetchEnabled) {
+            this.prefetchEnabled = prefetchEnabled;
+        }
+
+        public Duration getPrefetchInterval() {
+            return prefetchInterval;
+        }
+
+        public void setPrefetchInterval(Duration prefetchInterval) {
+            this.prefetchInterval = prefetchInterval;
+        }
+
+        public Duration getPrefetchAhead() {
+            return prefetchAhead;
+        }
+
+        public void setPrefetchAhead(Duration prefetchAhead) {
+            this.prefetchAhead = prefetchAhead;
+        }
+
+        public long getMinHits() {
+            return minHits;
+        }
+
+        public void setMinHits(long minHits) {
+            this.minHits = minHits;
+        }
+
+        public Duration getMaxIdle() {
+            return maxIdle;
+        }
+
+        public void setMaxIdle(Duration maxIdle) {
+            this.maxIdle = maxIdle;
+        }
+    }
+
+    public static class Disk {
+
+        // Desactivado por defecto: el caché vive sólo en memoria
+        private boolean enabled = false;
+
+        // Directorio propio de la instancia; dos réplicas no deben compartirlo
+        private String path = System.getProperty("java.io.tmpdir") + "/api-gateway-cache";
+
+        // Tamaño de cada archivo mapeado en memoria
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        // Al superar este número de segmentos se descarta el más antiguo
+        private int maxSegments = 16;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public int getMaxSegments() {
+            return maxSegments;
+        }
+
+        public void setMaxSegments(int maxSegments) {
+            this.maxSegments = maxSegments;
+        }
+    }
+
+    public static class Cluster {
+
+        // Desactivado por defecto: cada réplica mantiene su propio caché
+        private boolean enabled = false;
+
+        // Nombre con el que las réplicas del gateway se registran en Eureka
+        private String serviceId = "api-gateway";
+
+        // Nodos virtuales por réplica en el anillo de hash consistente
+        private int virtualNodes = 100;
+
+        // Frecuencia con la que se consulta Eureka para reconstruir el anillo
+        private Duration refreshInterval = Duration.ofSeconds(15);
+
+        // Tiempo máximo para obtener una respuesta de la réplica dueña de la clave
+        private Duration forwardTimeout = Duration.ofSeconds(2);
+
+        // Secreto compartido por las réplicas para firmar reenvíos e invalidaciones; obligatorio con el modo activo
+        private String peerSecret = "";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public Duration getForwardTimeout() {
+            return forwardTimeout;
+        }
+
+        public void setForwardTimeout(Duration forwardTimeout) {
+            this.forwardTimeout = forwardTimeout;
+        }
+
+        public String getPeerSecret() {
+            return peerSecret;
+        }
+
+        public void setPeerSecret(String peerSecret) {
+            this.peerSecret = peerSecret;
+        }
+    }
+}
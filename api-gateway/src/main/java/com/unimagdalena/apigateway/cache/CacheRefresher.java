@@ -0,0 +1,114 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revalida entradas del caché en segundo plano enviando la misma solicitud de vuelta al gateway.
+ * Así la recarga recorre la ruta completa (filtros, balanceo) y el filtro de caché la almacena.
+ */
+@Component
+public class CacheRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheRefresher.class);
+
+    public static final String REFRESH_HEADER = "X-Cache-Refresh";
+    private static final Duration REFRESH_TIMEOUT = Duration.ofSeconds(10);
+    // Encabezados que no se copian: forzarían un 304 o no aplican a la nueva conexión
+    private static final List<String> SKIPPED_HEADERS = List.of(
+            HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONNECTION,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+
+    private final WebClient webClient;
+    // Valor secreto por proceso: un cliente externo no puede forzar recargas con el encabezado
+    private final String token = UUID.randomUUID().toString();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private volatile int port = -1;
+
+    public CacheRefresher(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.build();
+    }
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        // Ignorar el servidor de management si corre en otro puerto
+        if (event.getApplicationContext().getServerNamespace() == null) {
+            port = event.getWebServer().getPort();
+        }
+    }
+
+    public boolean isRefreshRequest(ServerHttpRequest request) {
+        return token.equals(request.getHeaders().getFirst(REFRESH_HEADER));
+    }
+
+    public ServerWebExchange withoutRefreshMarker(ServerWebExchange exchange) {
+        return exchange.mutate()
+                .request(builder -> builder.headers(headers -> headers.remove(REFRESH_HEADER)))
+                .build();
+    }
+
+    /**
+     * Lanza una recarga asíncrona de la clave si no hay otra en curso.
+     * Devuelve false si la recarga no se pudo programar.
+     */
+    public boolean refresh(String key, ServerHttpRequest request) {
+        return refresh(key, request.getURI(), request.getHeaders());
+    }
+
+    public boolean refresh(String key, URI requestUri, HttpHeaders requestHeaders) {
+        if (port < 0 || !refreshing.add(key)) {
+            return false;
+        }
+        refreshes.increment();
+        URI uri = UriComponentsBuilder.fromUri(requestUri)
+                .scheme("http")
+                .host("127.0.0.1")
+                .port(port)
+                .build(true)
+                .toUri();
+
+        webClient.get()
+                .uri(uri)
+                .headers(headers -> {
+                    headers.addAll(requestHeaders);
+                    SKIPPED_HEADERS.forEach(headers::remove);
+                    headers.set(REFRESH_HEADER, token);
+                })
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                .timeout(REFRESH_TIMEOUT)
+                .doFinally(signal -> refreshing.remove(key))
+                .subscribe(
+                        status -> log.debug("Revalidación de {} completada con estado {}", key, status),
+                        error -> {
+                            failedRefreshes.increment();
+                            log.warn("Revalidación de {} fallida: {}", key, error.getMessage());
+                        });
+        return true;
+    }
+
+    public long refreshCount() {
+        return refreshes.sum();
+    }
+
+    public long failedRefreshCount() {
+        return failedRefreshes.sum();
+    }
+}
@@ -0,0 +1,12 @@
+package com.unimagdalena.apigateway.cache;
+
+/**
+ * Recibe las entradas que salen del caché en memoria. Se invoca antes de liberar el cuerpo,
+ * dentro del lock del motor: quien necesite el cuerpo después debe tomar su propio slice
+ * con CacheEntry.retainedBody() y no hacer trabajo bloqueante aquí.
+ */
+@FunctionalInterface
+public interface CacheRemovalListener {
+
+    void onRemoval(String key, CacheEntry entry, RemovalCause cause);
+}
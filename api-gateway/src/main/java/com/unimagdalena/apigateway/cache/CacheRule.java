@@ -0,0 +1,114 @@
+package com.unimagdalena.apigateway.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regla declarativa de cacheo para una ruta. Se compila una sola vez en CompiledCacheRule.
+ */
+public class CacheRule {
+
+    // Plantilla de ruta al estilo Spring, por ejemplo /api/products/{id}
+    private String pathTemplate;
+    private List<String> methods = new ArrayList<>(List.of("GET"));
+    // Parámetros de query que forman parte de la clave; "*" incluye todos
+    private List<String> queryParams = new ArrayList<>();
+    // TTL por código de estado; si está vacío sólo se cachea 200 con el TTL de la ruta
+    private Map<Integer, Long> statusTtlSeconds = new LinkedHashMap<>();
+    // Etiquetas de las entradas; admiten variables de la plantilla, por ejemplo product:{id}
+    private List<String> tags = new ArrayList<>();
+    // Rutas de escritura (POST, PUT, PATCH, DELETE) que invalidan las etiquetas de esta regla
+    private List<String> invalidatedBy = new ArrayList<>();
+    // PRINCIPAL separa las entradas por usuario y sólo cachea solicitudes con un JWT válido
+    private CacheScope scope = CacheScope.PUBLIC;
+
+    public CacheRule() {
+    }
+
+    public CacheRule(String pathTemplate) {
+        this.pathTemplate = pathTemplate;
+    }
+
+    public String getPathTemplate() {
+        return pathTemplate;
+    }
+
+    public void setPathTemplate(String pathTemplate) {
+        this.pathTemplate = pathTemplate;
+    }
+
+    public List<String> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(List<String> methods) {
+        this.methods = methods;
+    }
+
+    public List<String> getQueryParams() {
+        return queryParams;
+    }
+
+    public void setQueryParams(List<String> queryParams) {
+        this.queryParams = queryParams;
+    }
+
+    public Map<Integer, Long> getStatusTtlSeconds() {
+        return statusTtlSeconds;
+    }
+
+    public void setStatusTtlSeconds(Map<Integer, Long> statusTtlSeconds) {
+        this.statusTtlSeconds = statusTtlSeconds;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public List<String> getInvalidatedBy() {
+        return invalidatedBy;
+    }
+
+    public void setInvalidatedBy(List<String> invalidatedBy) {
+        this.invalidatedBy = invalidatedBy;
+    }
+
+    public CacheScope getScope() {
+        return scope;
+    }
+
+    public void setScope(CacheScope scope) {
+        this.scope = scope;
+    }
+
+    public CacheRule cacheStatus(int status, long ttlSeconds) {
+        this.statusTtlSeconds.put(status, ttlSeconds);
+        return this;
+    }
+
+    public CacheRule queryParams(String... names) {
+        this.queryParams = new ArrayList<>(List.of(names));
+        return this;
+    }
+
+    public CacheRule tags(String... tags) {
+        this.tags = new ArrayList<>(List.of(tags));
+        return this;
+    }
+
+    public CacheRule scope(CacheScope scope) {
+        this.scope = scope;
+        return this;
+    }
+
+    public CacheRule invalidatedBy(String... pathTemplates) {
+        this.invalidatedBy = new ArrayList<>(List.of(pathTemplates));
+        return this;
+    }
+}
@@ -0,0 +1,39 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Conjunto de reglas compiladas de una ruta. La primera regla que coincide gana.
+ */
+public class CacheRuleMatcher {
+
+    private final CompiledCacheRule[] rules;
+
+    public CacheRuleMatcher(List<CacheRule> rules, long defaultTtlSeconds) {
+        this.rules = rules.stream()
+                .map(rule -> new CompiledCacheRule(rule, defaultTtlSeconds))
+                .toArray(CompiledCacheRule[]::new);
+    }
+
+    public CompiledCacheRule match(ServerHttpRequest request) {
+        for (CompiledCacheRule rule : rules) {
+            if (rule.matches(request)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    // Etiquetas de todas las reglas afectadas por una escritura
+    public Set<String> invalidatedTags(ServerHttpRequest request) {
+        Set<String> tags = new HashSet<>();
+        for (CompiledCacheRule rule : rules) {
+            tags.addAll(rule.invalidatedTagsFor(request));
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,11 @@
+package com.unimagdalena.apigateway.cache;
+
+/**
+ * Espacio de nombres de las entradas de una regla.
+ */
+public enum CacheScope {
+    // La misma respuesta sirve a cualquier cliente
+    PUBLIC,
+    // Cada usuario autenticado (claim sub del JWT verificado) tiene sus propias entradas
+    PRINCIPAL
+}
@@ -0,0 +1,176 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Versión precompilada de una CacheRule: el patrón de ruta se parsea una sola vez y la clave
+ * se construye con los parámetros de query normalizados (ordenados y sin vacíos).
+ */
+public class CompiledCacheRule {
+
+    private static final String ALL_PARAMS = "*";
+    private static final Set<HttpMethod> WRITE_METHODS =
+            Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final PathPattern pattern;
+    private final Set<HttpMethod> methods = new HashSet<>();
+    private final Set<String> queryParams;
+    private final boolean allQueryParams;
+    private final Map<Integer, Long> statusTtlMillis = new HashMap<>();
+    private final List<String> tags;
+    private final List<PathPattern> invalidatedBy = new ArrayList<>();
+    private final CacheScope scope;
+    // Encabezados de Vary aprendidos de las respuestas; se reemplaza completo al cambiar
+    private volatile List<String> varyHeaders = List.of();
+
+    public CompiledCacheRule(CacheRule rule, long defaultTtlSeconds) {
+        this.pattern = PathPatternParser.defaultInstance.parse(rule.getPathTemplate());
+        rule.getMethods().forEach(method -> methods.add(HttpMethod.valueOf(method.toUpperCase())));
+        this.allQueryParams = rule.getQueryParams().contains(ALL_PARAMS);
+        this.queryParams = new HashSet<>(rule.getQueryParams());
+        if (rule.getStatusTtlSeconds().isEmpty()) {
+            statusTtlMillis.put(200, defaultTtlSeconds * 1000);
+        } else {
+            rule.getStatusTtlSeconds().forEach((status, ttl) -> statusTtlMillis.put(status, ttl * 1000));
+        }
+        this.tags = List.copyOf(rule.getTags());
+        this.scope = rule.getScope();
+        rule.getInvalidatedBy().forEach(template ->
+                invalidatedBy.add(PathPatternParser.defaultInstance.parse(template)));
+    }
+
+    public boolean matches(ServerHttpRequest request) {
+        return methods.contains(request.getMethod())
+                && pattern.matches(request.getPath().pathWithinApplication());
+    }
+
+    public String cacheKey(ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(64)
+                .append(request.getMethod().name())
+                .append(' ')
+                .append(request.getPath().value());
+        String query = normalizedQuery(request.getQueryParams());
+        if (!query.isEmpty()) {
+            key.append('?').append(query);
+        }
+        return key.toString();
+    }
+
+    // Etiquetas de la entrada con las variables de la ruta ya resueltas
+    public Set<String> tagsFor(ServerHttpRequest request) {
+        if (tags.isEmpty()) {
+            return Set.of();
+        }
+        PathPattern.PathMatchInfo match = pattern.matchAndExtract(request.getPath().pathWithinApplication());
+        return expand(match != null ? match.getUriVariables() : Map.of());
+    }
+
+    // Etiquetas que invalida una escritura sobre la ruta dada; vacío si la solicitud no es una escritura relevante
+    public Set<String> invalidatedTagsFor(ServerHttpRequest request) {
+        if (tags.isEmpty() || !WRITE_METHODS.contains(request.getMethod())) {
+            return Set.of();
+        }
+        for (PathPattern writePattern : invalidatedBy) {
+            PathPattern.PathMatchInfo match = writePattern.matchAndExtract(request.getPath().pathWithinApplication());
+            if (match != null) {
+                return expand(match.getUriVariables());
+            }
+        }
+        return Set.of();
+    }
+
+    public boolean isPrincipalScoped() {
+        return scope == CacheScope.PRINCIPAL;
+    }
+
+    public List<String> getVaryHeaders() {
+        return varyHeaders;
+    }
+
+    /**
+     * Incorpora los encabezados de Vary de una respuesta. Devuelve true si la lista cambió,
+     * en cuyo caso la clave de la solicitud debe recalcularse antes de guardar.
+     */
+    public synchronized boolean learnVary(List<String> responseVary) {
+        TreeSet<String> merged = new TreeSet<>(varyHeaders);
+        for (String header : responseVary) {
+            merged.add(header.trim().toLowerCase(Locale.ROOT));
+        }
+        if (merged.size() == varyHeaders.size()) {
+            return false;
+        }
+        varyHeaders = List.copyOf(merged);
+        return true;
+    }
+
+    // TTL en milisegundos para el estado dado, o null si ese estado no se cachea
+    public Long ttlMillisFor(HttpStatusCode status) {
+        return status == null ? null : statusTtlMillis.get(status.value());
+    }
+
+    public String getPathTemplate() {
+        return pattern.getPatternString();
+    }
+
+    // Reemplaza {variable} en cada etiqueta; las que quedan sin resolver se descartan
+    private Set<String> expand(Map<String, String> variables) {
+        Set<String> expanded = new HashSet<>();
+        for (String tag : tags) {
+            String value = tag;
+            for (Map.Entry<String, String> variable : variables.entrySet()) {
+                value = value.replace("{" + variable.getKey() + "}", variable.getValue());
+            }
+            if (value.indexOf('{') < 0) {
+                expanded.add(value);
+            }
+        }
+        return expanded;
+    }
+
+    private String normalizedQuery(MultiValueMap<String, String> params) {
+        if (params.isEmpty() || (!allQueryParams && queryParams.isEmpty())) {
+            return "";
+        }
+        TreeMap<String, List<String>> included = new TreeMap<>();
+        params.forEach((name, values) -> {
+            if (!allQueryParams && !queryParams.contains(name)) {
+                return;
+            }
+            List<String> nonEmpty = new ArrayList<>();
+            for (String value : values) {
+                if (value != null && !value.isEmpty()) {
+                    nonEmpty.add(UriUtils.encode(value, StandardCharsets.UTF_8));
+                }
+            }
+            if (!nonEmpty.isEmpty()) {
+                nonEmpty.sort(null);
+                included.put(name, nonEmpty);
+            }
+        });
+        StringBuilder query = new StringBuilder();
+        included.forEach((name, values) -> values.forEach(value -> {
+            if (!query.isEmpty()) {
+                query.append('&');
+            }
+            query.append(name).append('=').append(value);
+        }));
+        return query.toString();
+    }
+}
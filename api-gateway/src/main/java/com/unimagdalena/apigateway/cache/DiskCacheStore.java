@@ -0,0 +1,563 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Segundo nivel del caché: un registro de sólo escritura repartido en segmentos de tamaño fijo
+ * mapeados en memoria. Cada registro guarda la respuesta completa (estado, vencimientos,
+ * etiquetas, encabezados y cuerpo); las invalidaciones se escriben como lápidas.
+ *
+ * El índice clave → posición vive en memoria y se reconstruye al arrancar recorriendo los
+ * segmentos, por lo que el caché sobrevive a un reinicio. Al llenarse, el segmento más antiguo
+ * se descarta completo. Todas las escrituras pasan por un único hilo; las lecturas copian el
+ * registro a un buffer directo del pool sin bloquear. La variante gzip se guarda junto al cuerpo
+ * para que una entrada promovida desde disco la siga sirviendo.
+ */
+public class DiskCacheStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskCacheStore.class);
+
+    // El número mágico se escribe al final: un registro a medio escribir nunca se considera válido.
+    // Cambia con el formato del registro, así que los segmentos de una versión anterior se descartan
+    private static final int MAGIC = 0x47574333;
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final byte ENTRY = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final int MAX_PENDING_WRITES = 10_000;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition;
+
+        Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class Location {
+        final Segment segment;
+        final int offset;
+        final long evictableAfter;
+        final Set<String> tags;
+        final String resource;
+
+        Location(Segment segment, int offset, long evictableAfter, Set<String> tags, String resource) {
+            this.segment = segment;
+            this.offset = offset;
+            this.evictableAfter = evictableAfter;
+            this.tags = tags;
+            this.resource = resource;
+        }
+    }
+
+    private static final class Metadata {
+        byte type;
+        String key;
+        String resource;
+        int status;
+        long expirationTime;
+        long staleWhileRevalidateUntil;
+        long staleIfErrorUntil;
+        Set<String> tags = new HashSet<>();
+        HttpHeaders headers = new HttpHeaders();
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    // Sólo el hilo de escritura modifica los segmentos
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-disk-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    // Etiquetas y prefijos invalidados mientras había escrituras en cola: esas escrituras no se indexan
+    private final Map<String, Integer> pendingTagRemovals = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pendingPrefixRemovals = new ConcurrentHashMap<>();
+    private Segment active;
+
+    public DiskCacheStore(Path directory, long segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes <= RECORD_HEADER_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tamaño de segmento inválido: " + segmentBytes);
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un segmento");
+        }
+        this.directory = directory;
+        this.segmentBytes = (int) segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        loadSegments();
+    }
+
+    private void loadSegments() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                    name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            log.warn("Archivo ignorado en el caché en disco: {}", name);
+                        }
+                    });
+        }
+        ids.sort(null);
+        long now = System.currentTimeMillis();
+        for (long id : ids) {
+            Segment segment = openSegment(id);
+            scan(segment, now);
+            segments.addLast(segment);
+            active = segment;
+        }
+        while (segments.size() > maxSegments) {
+            dropOldest();
+        }
+        if (active == null) {
+            active = openSegment(1);
+            segments.addLast(active);
+        }
+        log.info("Caché en disco cargado desde {}: {} entradas en {} segmentos",
+                directory, index.size(), segments.size());
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%010d", id) + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentBytes);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+        return new Segment(id, path, channel, buffer);
+    }
+
+    // Reconstruye el índice con los registros válidos del segmento; el último registro de una clave gana
+    private void scan(Segment segment, long now) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity() && buffer.getInt(position) == MAGIC) {
+            int recordLength = buffer.getInt(position + 4);
+            if (recordLength < RECORD_HEADER_BYTES + 4 || position + recordLength > buffer.capacity()) {
+                break;
+            }
+            try {
+                Metadata metadata = readMetadata(buffer, position);
+                long evictableAfter = evictableAfter(metadata);
+                if (metadata.type == ENTRY && now <= evictableAfter) {
+                    index.put(metadata.key, new Location(segment, position, evictableAfter, metadata.tags,
+                            metadata.resource));
+                } else {
+                    index.remove(metadata.key);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Registro dañado en {} (posición {}), se descarta el resto del segmento",
+                        segment.path, position);
+                break;
+            }
+            position += recordLength;
+        }
+        segment.writePosition = position;
+    }
+
+    /**
+     * Devuelve una copia de la entrada guardada en disco, o null si no existe o ya no puede servirse.
+     */
+    public CacheEntry get(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() > location.evictableAfter) {
+            index.remove(key, location);
+            return null;
+        }
+        ByteBuffer buffer = location.segment.buffer.duplicate();
+        int offset = location.offset;
+        try {
+            Metadata metadata = readMetadata(buffer, offset);
+            int bodyOffset = offset + RECORD_HEADER_BYTES + buffer.getInt(offset + 8);
+            int bodyLength = buffer.getInt(bodyOffset);
+            int gzipOffset = bodyOffset + 4 + bodyLength;
+            int gzipLength = buffer.getInt(gzipOffset);
+            ByteBuf body = copy(buffer, bodyOffset + 4, bodyLength);
+            ByteBuf gzipBody = gzipLength > 0 ? copy(buffer, gzipOffset + 4, gzipLength) : null;
+            return CacheEntry.restore(HttpStatusCode.valueOf(metadata.status), body, gzipBody, metadata.headers,
+                    metadata.expirationTime, metadata.staleWhileRevalidateUntil, metadata.staleIfErrorUntil,
+                    metadata.tags, metadata.resource);
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo leer {} del caché en disco: {}", key, e.getMessage());
+            index.remove(key, location);
+            return null;
+        }
+    }
+
+    public boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    public Set<String> keys() {
+        return Set.copyOf(index.keySet());
+    }
+
+    /**
+     * Programa la escritura de la entrada. Toma su propio slice del cuerpo, así que puede llamarse
+     * justo antes de que el caché en memoria libere la entrada.
+     */
+    public void write(String key, CacheEntry entry) {
+        if (entry.isEvictable(System.currentTimeMillis())) {
+            return;
+        }
+        if (pendingWrites.incrementAndGet() > MAX_PENDING_WRITES) {
+            pendingWrites.decrementAndGet();
+            log.debug("Cola de escritura a disco llena, {} no se guarda", key);
+            return;
+        }
+        ByteBuf body = entry.retainedBody();
+        ByteBuf gzipBody = entry.retainedGzipBody();
+        if (body == null || (entry.hasGzipVariant() && gzipBody == null)) {
+            releaseQuietly(body);
+            releaseQuietly(gzipBody);
+            pendingWrites.decrementAndGet();
+            return;
+        }
+        submit(() -> {
+            try {
+                append(key, ENTRY, entry, body, gzipBody);
+            } finally {
+                body.release();
+                releaseQuietly(gzipBody);
+                pendingWrites.decrementAndGet();
+            }
+        }, () -> {
+            body.release();
+            releaseQuietly(gzipBody);
+            pendingWrites.decrementAndGet();
+        });
+    }
+
+    public void remove(String key) {
+        boolean wasIndexed = index.remove(key) != null;
+        submit(() -> {
+            // Una escritura anterior aún en cola pudo indexar la clave después de la consulta
+            if (index.remove(key) != null || wasIndexed) {
+                append(key, TOMBSTONE, null, null, null);
+            }
+        }, null);
+    }
+
+    public int removeTag(String tag) {
+        return removeMatching(pendingTagRemovals, tag, location -> location.tags.contains(tag));
+    }
+
+    public int removePrefix(String resourcePrefix) {
+        return removeMatching(pendingPrefixRemovals, resourcePrefix,
+                location -> location.resource.startsWith(resourcePrefix));
+    }
+
+    /**
+     * Borra las claves indexadas que cumplen la condición. Las escrituras que siguen en cola se
+     * indexarían después de esta consulta, así que la invalidación queda registrada hasta que el
+     * hilo de escritura llega a ella y append() descarta las que le corresponden.
+     */
+    private int removeMatching(Map<String, Integer> pending, String value, Predicate<Location> matches) {
+        pending.merge(value, 1, Integer::sum);
+        List<String> matching = new ArrayList<>();
+        index.forEach((key, location) -> {
+            if (matches.test(location)) {
+                matching.add(key);
+            }
+        });
+        matching.forEach(this::remove);
+        submit(() -> pending.computeIfPresent(value, (ignored, count) -> count > 1 ? count - 1 : null), null);
+        return matching.size();
+    }
+
+    private boolean invalidatedWhileQueued(CacheEntry entry) {
+        for (String tag : pendingTagRemovals.keySet()) {
+            if (entry.getTags().contains(tag)) {
+                return true;
+            }
+        }
+        for (String prefix : pendingPrefixRemovals.keySet()) {
+            if (entry.getResource().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int cleanUp() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            if (now > entry.getValue().evictableAfter && index.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        index.clear();
+        submit(() -> {
+            try {
+                while (!segments.isEmpty()) {
+                    dropOldest();
+                }
+                active = openSegment(active.id + 1);
+                segments.addLast(active);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, null);
+    }
+
+    public long size() {
+        return index.size();
+    }
+
+    // Espera a que se completen las escrituras programadas hasta ahora
+    void awaitWrites() {
+        try {
+            writer.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Las escrituras al caché en disco no terminaron: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Escrituras pendientes al caché en disco descartadas al cerrar");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            closeQuietly(segment);
+        }
+        log.info("Caché en disco cerrado: {} entradas en {}", index.size(), directory);
+    }
+
+    private void submit(Runnable task, Runnable onRejected) {
+        try {
+            writer.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("Error escribiendo en el caché en disco: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // El almacenamiento ya se cerró
+            if (onRejected != null) {
+                onRejected.run();
+            }
+        }
+    }
+
+    private void append(String key, byte type, CacheEntry entry, ByteBuf body, ByteBuf gzipBody) {
+        if (type == ENTRY && invalidatedWhileQueued(entry)) {
+            log.debug("Entrada {} invalidada mientras esperaba en la cola, no se guarda en disco", key);
+            return;
+        }
+        byte[] metadata;
+        try {
+            metadata = writeMetadata(key, type, entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int bodyLength = body != null ? body.readableBytes() : 0;
+        int gzipLength = gzipBody != null ? gzipBody.readableBytes() : 0;
+        long recordLength = (long) RECORD_HEADER_BYTES + metadata.length + 4 + bodyLength + 4 + gzipLength;
+        if (recordLength > segmentBytes) {
+            log.debug("Entrada {} ({} bytes) no cabe en un segmento, no se guarda en disco", key, recordLength);
+            return;
+        }
+        if (active.writePosition + recordLength > active.buffer.capacity()) {
+            roll();
+        }
+
+        int offset = active.writePosition;
+        ByteBuffer target = active.buffer.duplicate();
+        target.position(offset + 4);
+        target.putInt((int) recordLength);
+        target.putInt(metadata.length);
+        target.put(metadata);
+        target.putInt(bodyLength);
+        if (body != null) {
+            body.getBytes(body.readerIndex(), target.slice(target.position(), bodyLength));
+            target.position(target.position() + bodyLength);
+        }
+        target.putInt(gzipLength);
+        if (gzipBody != null) {
+            gzipBody.getBytes(gzipBody.readerIndex(), target.slice(target.position(), gzipLength));
+        }
+        active.buffer.putInt(offset, MAGIC);
+        active.writePosition += (int) recordLength;
+
+        if (type == ENTRY) {
+            index.put(key, new Location(active, offset,
+                    Math.max(entry.getStaleWhileRevalidateUntil(), entry.getStaleIfErrorUntil()),
+                    entry.getTags(), entry.getResource()));
+        }
+    }
+
+    private void roll() {
+        active.buffer.force();
+        try {
+            active = openSegment(active.id + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.addLast(active);
+        while (segments.size() > maxSegments) {
+            dropOldest();
+        }
+    }
+
+    private void dropOldest() {
+        Segment oldest = segments.pollFirst();
+        index.values().removeIf(location -> location.segment == oldest);
+        closeQuietly(oldest);
+        try {
+            Files.deleteIfExists(oldest.path);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el segmento {}: {}", oldest.path, e.getMessage());
+        }
+    }
+
+    private static ByteBuf copy(ByteBuffer buffer, int offset, int length) {
+        ByteBuf copy = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+        copy.writeBytes(buffer.slice(offset, length));
+        return copy;
+    }
+
+    private static void releaseQuietly(ByteBuf buffer) {
+        if (buffer != null) {
+            buffer.release();
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.debug("Error cerrando {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private static long evictableAfter(Metadata metadata) {
+        return Math.max(metadata.staleWhileRevalidateUntil, metadata.staleIfErrorUntil);
+    }
+
+    private static byte[] writeMetadata(String key, byte type, CacheEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeUTF(key);
+        if (type == ENTRY) {
+            out.writeUTF(entry.getResource());
+            out.writeInt(entry.getStatusCode().value());
+            out.writeLong(entry.getExpirationTime());
+            out.writeLong(entry.getStaleWhileRevalidateUntil());
+            out.writeLong(entry.getStaleIfErrorUntil());
+            out.writeInt(entry.getTags().size());
+            for (String tag : entry.getTags()) {
+                out.writeUTF(tag);
+            }
+            HttpHeaders headers = entry.getHeaders();
+            int values = 0;
+            for (List<String> headerValues : headers.values()) {
+                values += headerValues.size();
+            }
+            out.writeInt(values);
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    out.writeUTF(header.getKey());
+                    out.writeUTF(value);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Metadata readMetadata(ByteBuffer buffer, int offset) throws IOException {
+        int length = buffer.getInt(offset + 8);
+        byte[] bytes = new byte[length];
+        buffer.get(offset + RECORD_HEADER_BYTES, bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        Metadata metadata = new Metadata();
+        metadata.type = in.readByte();
+        metadata.key = in.readUTF();
+        if (metadata.type == ENTRY) {
+            metadata.resource = in.readUTF();
+            metadata.status = in.readInt();
+            metadata.expirationTime = in.readLong();
+            metadata.staleWhileRevalidateUntil = in.readLong();
+            metadata.staleIfErrorUntil = in.readLong();
+            int tags = in.readInt();
+            for (int i = 0; i < tags; i++) {
+                metadata.tags.add(in.readUTF());
+            }
+            int headers = in.readInt();
+            for (int i = 0; i < headers; i++) {
+                metadata.headers.add(in.readUTF(), in.readUTF());
+            }
+        }
+        return metadata;
+    }
+}
@@ -0,0 +1,70 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Cálculo y comparación de ETags fuertes para las respuestas del caché.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    // ETag fuerte a partir del hash MD5 del cuerpo, sin copiarlo a la memoria del heap
+    public static String strongETag(ByteBuf body) {
+        MessageDigest digest = md5();
+        for (ByteBuffer buffer : body.nioBuffers()) {
+            digest.update(buffer);
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
+
+    // ETag de otra codificación del mismo contenido: una representación distinta necesita un ETag fuerte distinto
+    public static String encodingVariant(String etag, String coding) {
+        if (etag == null || !etag.endsWith("\"")) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + coding + "\"";
+    }
+
+    // true si la solicitud condicional ya tiene la representación con ese ETag (comparación débil, RFC 9110)
+    public static boolean notModified(ServerHttpRequest request, String etag) {
+        if (etag == null || (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD)) {
+            return false;
+        }
+        List<String> ifNoneMatch;
+        try {
+            ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            // Encabezado mal formado: se responde con el cuerpo completo
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || opaqueTag(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 no está disponible en esta JVM", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Variante gzip de los cuerpos cacheados. Se comprime una sola vez al guardar la entrada, con
+ * el nivel máximo porque el costo se paga por carga y no por hit; los hits sirven esos bytes
+ * tal cual y el compresor del servidor los deja pasar porque ya llevan Content-Encoding.
+ */
+public final class GzipEncoding {
+
+    public static final String GZIP = "gzip";
+
+    private GzipEncoding() {
+    }
+
+    // true si el cliente acepta gzip (Accept-Encoding con q > 0, o "*")
+    public static boolean accepts(ServerHttpRequest request) {
+        for (String header : request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                if ((GZIP.equals(name) || "x-gzip".equals(name) || "*".equals(name)) && !zeroQuality(parts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Cuerpos que vale la pena comprimir: texto, sin codificación previa y de un tamaño mínimo
+    public static boolean isCompressible(HttpHeaders headers, int length, int minBytes) {
+        if (length < minBytes || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        MediaType contentType;
+        try {
+            contentType = headers.getContentType();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (contentType == null) {
+            return false;
+        }
+        String subtype = contentType.getSubtype();
+        return "text".equals(contentType.getType())
+                || subtype.equals("json") || subtype.endsWith("+json")
+                || subtype.equals("xml") || subtype.endsWith("+xml")
+                || subtype.equals("javascript");
+    }
+
+    /**
+     * Comprime el cuerpo en un buffer del mismo asignador. Devuelve null si la compresión
+     * no ahorra al menos un 10 % (no compensa guardar ni servir la variante).
+     */
+    public static ByteBuf compress(ByteBuf body) {
+        int length = body.readableBytes();
+        ByteBuf compressed = body.alloc().buffer(Math.max(64, length / 4));
+        try (OutputStream out = new MaxLevelGzipOutputStream(new ByteBufOutputStream(compressed))) {
+            body.getBytes(body.readerIndex(), out, length);
+        } catch (IOException e) {
+            compressed.release();
+            return null;
+        }
+        if (compressed.readableBytes() > length * 0.9) {
+            compressed.release();
+            return null;
+        }
+        return compressed;
+    }
+
+    private static boolean zeroQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class MaxLevelGzipOutputStream extends GZIPOutputStream {
+        private MaxLevelGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
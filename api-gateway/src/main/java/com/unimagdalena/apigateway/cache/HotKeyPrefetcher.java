@@ -0,0 +1,86 @@
+package com.unimagdalena.apigateway.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recarga en segundo plano las claves populares poco antes de que venzan, para que los
+ * productos más consultados nunca provoquen un miss. Una clave que ya salió del caché no se
+ * recarga: la próxima solicitud real la vuelve a cargar si aún interesa.
+ */
+@Component
+public class HotKeyPrefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyPrefetcher.class);
+
+    private final CacheEngine cacheEngine;
+    private final HotKeyTracker tracker;
+    private final CacheRefresher cacheRefresher;
+    private final CacheProperties.HotKeys properties;
+    private final LongAdder prefetches = new LongAdder();
+    private Scheduler scheduler;
+    private Disposable task;
+
+    public HotKeyPrefetcher(CacheEngine cacheEngine, HotKeyTracker tracker, CacheRefresher cacheRefresher,
+                            CacheProperties properties) {
+        this.cacheEngine = cacheEngine;
+        this.tracker = tracker;
+        this.cacheRefresher = cacheRefresher;
+        this.properties = properties.getHotKeys();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isPrefetchEnabled()) {
+            return;
+        }
+        scheduler = Schedulers.newSingle("cache-prefetch", true);
+        task = Flux.interval(properties.getPrefetchInterval(), properties.getPrefetchInterval(), scheduler)
+                .subscribe(tick -> prefetch());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (task != null) {
+            task.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    void prefetch() {
+        try {
+            long deadline = System.currentTimeMillis() + properties.getPrefetchAhead().toMillis();
+            int scheduled = 0;
+            for (HotKeyTracker.HotKey hotKey : tracker.hotKeys()) {
+                CacheEntry entry = cacheEngine.peek(hotKey.getKey());
+                if (entry == null || entry.getExpirationTime() > deadline) {
+                    continue;
+                }
+                if (cacheRefresher.refresh(hotKey.getKey(), hotKey.getUri(), hotKey.getHeaders())) {
+                    scheduled++;
+                }
+            }
+            if (scheduled > 0) {
+                prefetches.add(scheduled);
+                log.debug("Precarga de claves populares: {} recargas programadas", scheduled);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error durante la precarga de claves populares: {}", e.getMessage());
+        }
+    }
+
+    public long prefetchCount() {
+        return prefetches.sum();
+    }
+}
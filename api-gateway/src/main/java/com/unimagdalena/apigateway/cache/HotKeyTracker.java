@@ -0,0 +1,207 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Detecta las claves más solicitadas con un Count-Min sketch y un heap de las K mayores.
+ * El sketch se incrementa sin bloqueos; el top-K se actualiza con tryLock y, si está ocupado,
+ * la muestra se pierde, igual que los accesos en TinyLfuCacheEngine. Los contadores se reducen
+ * a la mitad periódicamente para que el ranking refleje el tráfico reciente. Una clave sólo es
+ * popular con un mínimo de solicitudes estimadas y mientras se siga pidiendo: sin tráfico no hay
+ * reducción de contadores, así que las claves inactivas se descartan por tiempo.
+ * De cada solicitud sólo se guardan los encabezados que forman la clave (los de Vary), nunca
+ * credenciales: la recarga no debe reutilizar el token de un usuario.
+ */
+@Component
+public class HotKeyTracker {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9e3779b97f4a7c15L, 0xbf58476d1ce4e5b9L, 0x94d049bb133111ebL, 0xd6e8feb86659fd93L};
+
+    /**
+     * Clave popular junto con la solicitud necesaria para recargarla.
+     */
+    public static final class HotKey {
+        private final String key;
+        private final URI uri;
+        private final HttpHeaders headers;
+        private long estimate;
+        private long lastSeenNanos;
+
+        HotKey(String key, URI uri, HttpHeaders headers, long estimate, long lastSeenNanos) {
+            this.key = key;
+            this.uri = uri;
+            this.headers = headers;
+            this.estimate = estimate;
+            this.lastSeenNanos = lastSeenNanos;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        public long getEstimate() {
+            return estimate;
+        }
+    }
+
+    private final int topK;
+    private final long minHits;
+    private final long maxIdleNanos;
+    private final int width;
+    private final AtomicLongArray table;
+    private final long decayThreshold;
+    private final LongAdder additions = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, HotKey> top = new HashMap<>();
+    private final PriorityQueue<HotKey> heap = new PriorityQueue<>(Comparator.comparingLong(HotKey::getEstimate));
+
+    public HotKeyTracker(CacheProperties properties) {
+        CacheProperties.HotKeys hotKeys = properties.getHotKeys();
+        this.topK = hotKeys.getTopK();
+        this.minHits = Math.max(1, hotKeys.getMinHits());
+        this.maxIdleNanos = hotKeys.getMaxIdle().toNanos();
+        this.width = Integer.highestOneBit(Math.max(64, hotKeys.getSketchWidth() - 1)) << 1;
+        this.table = new AtomicLongArray(DEPTH * width);
+        this.decayThreshold = 10L * width;
+    }
+
+    /**
+     * Cuenta una solicitud de la clave. varyHeaders son los encabezados que forman la clave:
+     * los únicos que se copian para la recarga.
+     */
+    public void record(String key, ServerHttpRequest request, List<String> varyHeaders) {
+        long estimate = Long.MAX_VALUE;
+        int hash = key.hashCode();
+        for (int i = 0; i < DEPTH; i++) {
+            estimate = Math.min(estimate, table.incrementAndGet(indexOf(hash, i)));
+        }
+        additions.increment();
+        if (lock.tryLock()) {
+            try {
+                offer(key, estimate, request, varyHeaders, System.nanoTime());
+                if (additions.sum() >= decayThreshold) {
+                    decay();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        int hash = key.hashCode();
+        for (int i = 0; i < DEPTH; i++) {
+            estimate = Math.min(estimate, table.get(indexOf(hash, i)));
+        }
+        return estimate;
+    }
+
+    // Claves populares ordenadas de mayor a menor frecuencia estimada
+    public List<HotKey> hotKeys() {
+        return hotKeys(System.nanoTime());
+    }
+
+    List<HotKey> hotKeys(long nowNanos) {
+        lock.lock();
+        try {
+            // Las claves que ya nadie pide salen del top-K y dejan su lugar
+            heap.removeIf(hotKey -> {
+                boolean cold = hotKey.estimate < minHits || nowNanos - hotKey.lastSeenNanos > maxIdleNanos;
+                if (cold) {
+                    top.remove(hotKey.key);
+                }
+                return cold;
+            });
+            List<HotKey> snapshot = new ArrayList<>(heap);
+            snapshot.sort(Comparator.comparingLong(HotKey::getEstimate).reversed());
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void offer(String key, long estimate, ServerHttpRequest request, List<String> varyHeaders,
+                       long nowNanos) {
+        HotKey current = top.get(key);
+        if (current != null) {
+            heap.remove(current);
+            current.estimate = estimate;
+            current.lastSeenNanos = nowNanos;
+            heap.add(current);
+            return;
+        }
+        if (estimate < minHits) {
+            return;
+        }
+        if (heap.size() >= topK) {
+            HotKey coldest = heap.peek();
+            if (coldest == null || coldest.estimate >= estimate) {
+                return;
+            }
+            heap.poll();
+            top.remove(coldest.key);
+        }
+        // Sólo se copia la solicitud cuando la clave entra al top-K, y sólo lo que forma la clave
+        HttpHeaders headers = new HttpHeaders();
+        for (String header : varyHeaders) {
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                headers.put(header, List.copyOf(values));
+            }
+        }
+        HotKey hotKey = new HotKey(key, request.getURI(), headers, estimate, nowNanos);
+        top.put(key, hotKey);
+        heap.add(hotKey);
+    }
+
+    private void decay() {
+        for (int i = 0; i < table.length(); i++) {
+            long value;
+            do {
+                value = table.get(i);
+            } while (!table.compareAndSet(i, value, value >>> 1));
+        }
+        List<HotKey> entries = new ArrayList<>(heap);
+        heap.clear();
+        for (HotKey hotKey : entries) {
+            hotKey.estimate >>>= 1;
+            if (hotKey.estimate == 0) {
+                top.remove(hotKey.key);
+            } else {
+                heap.add(hotKey);
+            }
+        }
+        additions.reset();
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 32;
+        return row * width + ((int) h & (width - 1));
+    }
+}
@@ -0,0 +1,15 @@
+package com.unimagdalena.apigateway.cache;
+
+/**
+ * Motivo por el que una entrada salió del caché en memoria.
+ */
+public enum RemovalCause {
+    // Desplazada por la política de admisión o por falta de espacio
+    SIZE,
+    // Ya no podía servirse ni siquiera como copia vencida
+    EXPIRED,
+    // Invalidada por clave, por etiqueta o al limpiar el caché
+    EXPLICIT,
+    // Reemplazada por una respuesta más reciente para la misma clave
+    REPLACED
+}
@@ -0,0 +1,185 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Caché de dos niveles: W-TinyLFU en memoria delante de un almacenamiento en disco mapeado.
+ * Las entradas que la política expulsa por espacio bajan al disco y vuelven a memoria con el
+ * siguiente acceso. Al cerrar, el contenido en memoria se vuelca al disco para que un reinicio
+ * arranque con el caché caliente.
+ */
+public class TieredCacheEngine implements CacheEngine, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredCacheEngine.class);
+
+    private final TinyLfuCacheEngine memory;
+    private final DiskCacheStore disk;
+    private final LongAdder diskHits = new LongAdder();
+
+    public TieredCacheEngine(TinyLfuCacheEngine memory, DiskCacheStore disk) {
+        this.memory = memory;
+        this.disk = disk;
+        memory.setRemovalListener((key, entry, cause) -> {
+            // Una entrada que ya está en disco (promovida desde allí) no se vuelve a escribir
+            if (cause == RemovalCause.SIZE && !disk.contains(key)) {
+                disk.write(key, entry);
+            }
+        });
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        CacheEntry entry = memory.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        entry = disk.get(key);
+        if (entry == null) {
+            return null;
+        }
+        diskHits.increment();
+        // La copia en disco se conserva: si vuelve a salir de memoria no hay que reescribirla
+        memory.put(key, entry);
+        return entry;
+    }
+
+    @Override
+    public CacheEntry peek(String key) {
+        return memory.peek(key);
+    }
+
+    @Override
+    public void put(String key, CacheEntry entry) {
+        // La versión en disco queda obsoleta
+        if (disk.contains(key)) {
+            disk.remove(key);
+        }
+        memory.put(key, entry);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        memory.invalidate(key);
+        disk.remove(key);
+    }
+
+    @Override
+    public int invalidateTag(String tag) {
+        return memory.invalidateTag(tag) + disk.removeTag(tag);
+    }
+
+    @Override
+    public int invalidatePrefix(String resourcePrefix) {
+        return memory.invalidatePrefix(resourcePrefix) + disk.removePrefix(resourcePrefix);
+    }
+
+    @Override
+    public void clear() {
+        memory.clear();
+        disk.clear();
+    }
+
+    @Override
+    public int cleanUp() {
+        return memory.cleanUp() + disk.cleanUp();
+    }
+
+    @Override
+    public long size() {
+        return memory.size();
+    }
+
+    @Override
+    public long weightedSize() {
+        return memory.weightedSize();
+    }
+
+    @Override
+    public long maxWeight() {
+        return memory.maxWeight();
+    }
+
+    @Override
+    public Set<String> keys() {
+        Set<String> keys = new HashSet<>(memory.keys());
+        keys.addAll(disk.keys());
+        return keys;
+    }
+
+    // Incluye las entradas que sólo están en disco; de las que están en ambos niveles se entrega la de memoria
+    @Override
+    public void forEachEntry(BiConsumer<String, CacheEntry> action) {
+        Set<String> inMemory = new HashSet<>();
+        memory.forEachEntry((key, entry) -> {
+            inMemory.add(key);
+            action.accept(key, entry);
+        });
+        for (String key : disk.keys()) {
+            if (inMemory.contains(key)) {
+                continue;
+            }
+            // Copia leída sólo para la consulta: se libera al volver, sin promoverla a memoria
+            CacheEntry entry = disk.get(key);
+            if (entry != null) {
+                try {
+                    action.accept(key, entry);
+                } finally {
+                    entry.release();
+                }
+            }
+        }
+    }
+
+    @Override
+    public long hitCount() {
+        return memory.hitCount() + diskHits.sum();
+    }
+
+    @Override
+    public long missCount() {
+        return memory.missCount() - diskHits.sum();
+    }
+
+    @Override
+    public long evictionCount() {
+        return memory.evictionCount();
+    }
+
+    @Override
+    public long expiredCount() {
+        return memory.expiredCount();
+    }
+
+    @Override
+    public long removalCount(RemovalCause cause) {
+        return memory.removalCount(cause);
+    }
+
+    public long diskSize() {
+        return disk.size();
+    }
+
+    public long diskHitCount() {
+        return diskHits.sum();
+    }
+
+    @Override
+    public void close() {
+        // Volcar lo que sigue en memoria para arrancar caliente la próxima vez
+        int[] flushed = {0};
+        memory.forEachEntry((key, entry) -> {
+            if (!disk.contains(key)) {
+                disk.write(key, entry);
+                flushed[0]++;
+            }
+        });
+        disk.close();
+        log.info("Caché volcado a disco al cerrar: {} entradas", flushed[0]);
+    }
+}
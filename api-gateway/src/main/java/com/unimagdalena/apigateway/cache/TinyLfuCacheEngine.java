@@ -0,0 +1,468 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Caché acotado por bytes con política W-TinyLFU: una ventana LRU pequeña para las entradas
+ * nuevas y una región principal SLRU (probation/protected). Una entrada que sale de la ventana
+ * sólo entra a la región principal si su frecuencia estimada supera a la de la víctima.
+ *
+ * Las lecturas no bloquean: si el lock de la política está ocupado, el acceso no se registra.
+ * Las entradas vencidas se conservan mientras aún puedan servirse como stale.
+ * Toda entrada que sale del caché se libera para devolver su buffer al pool.
+ */
+public class TinyLfuCacheEngine implements CacheEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TinyLfuCacheEngine.class);
+    private static final long ASSUMED_ENTRY_BYTES = 1024;
+
+    private enum Region { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node {
+        final String key;
+        volatile CacheEntry entry;
+        long weight;
+        Region region;
+
+        Node(String key, CacheEntry entry, long weight) {
+            this.key = key;
+            this.entry = entry;
+            this.weight = weight;
+            this.region = Region.WINDOW;
+        }
+    }
+
+    private final Map<String, Node> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Colas en orden de inserción: la primera entrada es la menos reciente
+    private final LinkedHashMap<String, Node> window = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Node> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Node> protectedRegion = new LinkedHashMap<>();
+    private final FrequencySketch sketch;
+    // Índice de claves por etiqueta para invalidar grupos completos
+    private final Map<String, Set<String>> keysByTag = new HashMap<>();
+
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final long protectedMaxWeight;
+    private long windowWeight;
+    private long protectedWeight;
+    private volatile long weightedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final Map<RemovalCause, LongAdder> removals = new EnumMap<>(RemovalCause.class);
+    private volatile CacheRemovalListener removalListener = (key, entry, cause) -> { };
+
+    public TinyLfuCacheEngine(long maxWeight, double windowPercent) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo del caché debe ser positivo");
+        }
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, (long) (maxWeight * windowPercent / 100.0));
+        this.protectedMaxWeight = (long) ((maxWeight - windowMaxWeight) * 0.8);
+        this.sketch = new FrequencySketch(maxWeight / ASSUMED_ENTRY_BYTES);
+        for (RemovalCause cause : RemovalCause.values()) {
+            removals.put(cause, new LongAdder());
+        }
+    }
+
+    // Registra quién recibe las entradas que salen del caché (por ejemplo, el almacenamiento en disco)
+    public void setRemovalListener(CacheRemovalListener removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    @Override
+    public CacheEntry get(String key) {
+        Node node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            recordAccess(key, null);
+            return null;
+        }
+        CacheEntry entry = node.entry;
+        long now = System.currentTimeMillis();
+        if (entry.isEvictable(now)) {
+            misses.increment();
+            lock.lock();
+            try {
+                if (data.get(key) == node && node.entry.isEvictable(now)) {
+                    removeNode(node, RemovalCause.EXPIRED);
+                    expirations.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        }
+        hits.increment();
+        recordAccess(key, node);
+        return entry;
+    }
+
+    @Override
+    public CacheEntry peek(String key) {
+        Node node = data.get(key);
+        return node != null ? node.entry : null;
+    }
+
+    @Override
+    public void put(String key, CacheEntry entry) {
+        long weight = entry.getWeight();
+        if (weight > maxWeight) {
+            log.debug("Entrada {} ({} bytes) excede el tamaño del caché, no se almacena", key, weight);
+            invalidate(key);
+            notifyRemoval(key, entry, RemovalCause.SIZE);
+            entry.release();
+            return;
+        }
+        lock.lock();
+        try {
+            Node existing = data.get(key);
+            if (existing != null) {
+                long delta = weight - existing.weight;
+                if (existing.region == Region.WINDOW) {
+                    windowWeight += delta;
+                } else if (existing.region == Region.PROTECTED) {
+                    protectedWeight += delta;
+                }
+                CacheEntry previous = existing.entry;
+                unindexTags(key, previous);
+                indexTags(key, entry);
+                existing.weight = weight;
+                existing.entry = entry;
+                weightedSize += delta;
+                onHit(existing);
+                if (previous != entry) {
+                    notifyRemoval(key, previous, RemovalCause.REPLACED);
+                    previous.release();
+                }
+            } else {
+                Node node = new Node(key, entry, weight);
+                data.put(key, node);
+                indexTags(key, entry);
+                window.put(key, node);
+                windowWeight += weight;
+                weightedSize += weight;
+            }
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+        lock.lock();
+        try {
+            Node node = data.get(key);
+            if (node != null) {
+                removeNode(node, RemovalCause.EXPLICIT);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int invalidateTag(String tag) {
+        lock.lock();
+        try {
+            Set<String> tagged = keysByTag.get(tag);
+            if (tagged == null) {
+                return 0;
+            }
+            int removed = 0;
+            for (String key : new ArrayList<>(tagged)) {
+                Node node = data.get(key);
+                if (node != null) {
+                    removeNode(node, RemovalCause.EXPLICIT);
+                    removed++;
+                }
+            }
+            keysByTag.remove(tag);
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int invalidatePrefix(String resourcePrefix) {
+        lock.lock();
+        try {
+            int removed = 0;
+            for (Node node : new ArrayList<>(data.values())) {
+                if (node.entry.getResource().startsWith(resourcePrefix)) {
+                    removeNode(node, RemovalCause.EXPLICIT);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            data.values().forEach(node -> {
+                notifyRemoval(node.key, node.entry, RemovalCause.EXPLICIT);
+                node.entry.release();
+            });
+            data.clear();
+            keysByTag.clear();
+            window.clear();
+            probation.clear();
+            protectedRegion.clear();
+            windowWeight = 0;
+            protectedWeight = 0;
+            weightedSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int cleanUp() {
+        long now = System.currentTimeMillis();
+        List<Node> expired = new ArrayList<>();
+        for (Node node : data.values()) {
+            if (node.entry.isEvictable(now)) {
+                expired.add(node);
+            }
+        }
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        int removed = 0;
+        lock.lock();
+        try {
+            for (Node node : expired) {
+                if (data.get(node.key) == node && node.entry.isEvictable(now)) {
+                    removeNode(node, RemovalCause.EXPIRED);
+                    removed++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        expirations.add(removed);
+        return removed;
+    }
+
+    @Override
+    public long size() {
+        return data.size();
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(data.keySet());
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<String, CacheEntry> action) {
+        data.forEach((key, node) -> action.accept(key, node.entry));
+    }
+
+    @Override
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long expiredCount() {
+        return expirations.sum();
+    }
+
+    private void recordAccess(String key, Node node) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            sketch.increment(key);
+            if (node != null && data.get(key) == node) {
+                onHit(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onHit(Node node) {
+        switch (node.region) {
+            case WINDOW -> moveToTail(window, node);
+            case PROTECTED -> moveToTail(protectedRegion, node);
+            case PROBATION -> {
+                probation.remove(node.key);
+                node.region = Region.PROTECTED;
+                protectedRegion.put(node.key, node);
+                protectedWeight += node.weight;
+                demoteProtectedOverflow();
+            }
+        }
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protectedWeight > protectedMaxWeight && protectedRegion.size() > 1) {
+            Node demoted = pollFirst(protectedRegion);
+            protectedWeight -= demoted.weight;
+            demoted.region = Region.PROBATION;
+            probation.put(demoted.key, demoted);
+        }
+    }
+
+    private void evict() {
+        // La ventana cede sus entradas más antiguas a la región principal
+        while ((windowWeight > windowMaxWeight || weightedSize > maxWeight) && !window.isEmpty()) {
+            Node candidate = pollFirst(window);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+        while (weightedSize > maxWeight) {
+            Node victim = first(probation);
+            if (victim == null) {
+                victim = first(protectedRegion);
+            }
+            if (victim == null) {
+                break;
+            }
+            removeNode(victim, RemovalCause.SIZE);
+            evictions.increment();
+        }
+    }
+
+    private void admit(Node candidate) {
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (weightedSize > maxWeight) {
+            Node victim = first(probation);
+            if (victim == null) {
+                victim = first(protectedRegion);
+            }
+            if (victim == null || candidateFrequency <= sketch.frequency(victim.key)) {
+                // El candidato pierde contra la víctima: se descarta
+                data.remove(candidate.key, candidate);
+                unindexTags(candidate.key, candidate.entry);
+                weightedSize -= candidate.weight;
+                notifyRemoval(candidate.key, candidate.entry, RemovalCause.SIZE);
+                candidate.entry.release();
+                evictions.increment();
+                return;
+            }
+            removeNode(victim, RemovalCause.SIZE);
+            evictions.increment();
+        }
+        candidate.region = Region.PROBATION;
+        probation.put(candidate.key, candidate);
+    }
+
+    private void removeNode(Node node, RemovalCause cause) {
+        switch (node.region) {
+            case WINDOW -> {
+                if (window.remove(node.key) != null) {
+                    windowWeight -= node.weight;
+                }
+            }
+            case PROBATION -> probation.remove(node.key);
+            case PROTECTED -> {
+                if (protectedRegion.remove(node.key) != null) {
+                    protectedWeight -= node.weight;
+                }
+            }
+        }
+        if (data.remove(node.key, node)) {
+            unindexTags(node.key, node.entry);
+            weightedSize -= node.weight;
+            notifyRemoval(node.key, node.entry, cause);
+            node.entry.release();
+        }
+    }
+
+    @Override
+    public long removalCount(RemovalCause cause) {
+        return removals.get(cause).sum();
+    }
+
+    private void notifyRemoval(String key, CacheEntry entry, RemovalCause cause) {
+        removals.get(cause).increment();
+        try {
+            removalListener.onRemoval(key, entry, cause);
+        } catch (RuntimeException e) {
+            log.warn("Error notificando la salida de {} del caché: {}", key, e.getMessage());
+        }
+    }
+
+    private void indexTags(String key, CacheEntry entry) {
+        for (String tag : entry.getTags()) {
+            keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void unindexTags(String key, CacheEntry entry) {
+        for (String tag : entry.getTags()) {
+            Set<String> tagged = keysByTag.get(tag);
+            if (tagged != null && tagged.remove(key) && tagged.isEmpty()) {
+                keysByTag.remove(tag);
+            }
+        }
+    }
+
+    private static void moveToTail(LinkedHashMap<String, Node> queue, Node node) {
+        queue.remove(node.key);
+        queue.put(node.key, node);
+    }
+
+    private static Node first(LinkedHashMap<String, Node> queue) {
+        Iterator<Node> iterator = queue.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static Node pollFirst(LinkedHashMap<String, Node> queue) {
+        Iterator<Node> iterator = queue.values().iterator();
+        Node node = iterator.next();
+        iterator.remove();
+        return node;
+    }
+}
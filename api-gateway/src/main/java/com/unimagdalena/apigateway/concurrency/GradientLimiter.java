@@ -0,0 +1,129 @@
+package com.unimagdalena.apigateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite de concurrencia adaptativo (gradiente, al estilo de TCP Vegas). Compara la latencia
+ * media de cada ventana con la latencia base sin carga (la mínima reciente): si la latencia
+ * sube, el servicio está encolando y el límite baja en proporción; si se mantiene cerca de la
+ * base, el límite crece un poco para buscar más capacidad. Las solicitudes que exceden el
+ * límite se rechazan al instante en vez de esperar en la cola del servicio.
+ */
+public class GradientLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long updateIntervalNanos;
+    private final long baselineWindowNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Muestras de la ventana en curso
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong nextUpdateAt;
+
+    // Latencia base: mínima de la ventana actual y de la anterior, para olvidar mínimos viejos
+    private long baselineNanos = Long.MAX_VALUE;
+    private long previousBaselineNanos = Long.MAX_VALUE;
+    private long baselineRotatesAt;
+
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+                           long updateIntervalNanos, long baselineWindowNanos, long now) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.updateIntervalNanos = updateIntervalNanos;
+        this.baselineWindowNanos = baselineWindowNanos;
+        this.nextUpdateAt = new AtomicLong(now + updateIntervalNanos);
+        this.baselineRotatesAt = now + baselineWindowNanos;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1.0);
+    }
+
+    // Permiso limitado a una fracción del límite actual (las clases de menor prioridad usan menos)
+    public boolean tryAcquire(double fraction) {
+        int current = inFlight.incrementAndGet();
+        if (current > Math.max(1, (int) (limit * fraction))) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        maxInFlight.accumulateAndGet(current, Math::max);
+        return true;
+    }
+
+    /**
+     * Libera el permiso y registra la muestra. Una solicitud descartada (error de red o timeout)
+     * no aporta latencia, pero obliga a bajar el límite en la próxima actualización.
+     */
+    public void release(long rttNanos, boolean dropped, long now) {
+        inFlight.decrementAndGet();
+        if (dropped) {
+            drops.increment();
+        } else {
+            rttSum.add(rttNanos);
+            samples.increment();
+        }
+        long updateAt = nextUpdateAt.get();
+        // Un solo hilo recalcula el límite por ventana
+        if (now >= updateAt && nextUpdateAt.compareAndSet(updateAt, now + updateIntervalNanos)) {
+            update(now);
+        }
+    }
+
+    // Libera el permiso sin muestra: la solicitud no dice nada de la latencia del servicio (p. ej. el cliente canceló)
+    public void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void update(long now) {
+        long count = samples.sumThenReset();
+        long sum = rttSum.sumThenReset();
+        long dropped = drops.sumThenReset();
+        int peakInFlight = maxInFlight.getAndSet(inFlight.get());
+
+        if (dropped > 0) {
+            limit = Math.max(minLimit, limit * 0.9);
+            return;
+        }
+        if (count == 0) {
+            return;
+        }
+        long averageRtt = sum / count;
+        if (now >= baselineRotatesAt) {
+            previousBaselineNanos = baselineNanos;
+            baselineNanos = Long.MAX_VALUE;
+            baselineRotatesAt = now + baselineWindowNanos;
+        }
+        baselineNanos = Math.min(baselineNanos, averageRtt);
+        long baseline = Math.min(baselineNanos, previousBaselineNanos);
+
+        // Con poco tráfico la latencia no dice nada sobre el límite: no se sube sin usarlo
+        if (peakInFlight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseline / averageRtt));
+        double queue = Math.sqrt(limit);
+        double target = limit * gradient + queue;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + target * smoothing));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
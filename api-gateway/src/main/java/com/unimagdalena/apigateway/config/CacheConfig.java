@@ -0,0 +1,33 @@
+package com.unimagdalena.apigateway.config;
+
+import com.unimagdalena.apigateway.cache.CacheEngine;
+import com.unimagdalena.apigateway.cache.CacheProperties;
+import com.unimagdalena.apigateway.cache.DiskCacheStore;
+import com.unimagdalena.apigateway.cache.TieredCacheEngine;
+import com.unimagdalena.apigateway.cache.TinyLfuCacheEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheEngine cacheEngine(CacheProperties properties) throws IOException {
+        TinyLfuCacheEngine memory =
+                new TinyLfuCacheEngine(properties.getMaxSize().toBytes(), properties.getWindowPercent());
+        CacheProperties.Disk disk = properties.getDisk();
+        if (!disk.isEnabled()) {
+            return memory;
+        }
+        // Spring invoca close() al detenerse, lo que vuelca la memoria al disco
+        return new TieredCacheEngine(memory, new DiskCacheStore(Path.of(disk.getPath()),
+                disk.getSegmentSize().toBytes(), disk.getMaxSegments()));
+    }
+}
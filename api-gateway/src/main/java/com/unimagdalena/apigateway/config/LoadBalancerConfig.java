@@ -0,0 +1,14 @@
+package com.unimagdalena.apigateway.config;
+
+import com.unimagdalena.apigateway.loadbalancer.LoadBalancerProperties;
+import com.unimagdalena.apigateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+// Todas las rutas lb:// eligen instancia por latencia y carga en lugar de round-robin
+@Configuration
+@EnableConfigurationProperties(LoadBalancerProperties.class)
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,10 @@
+package com.unimagdalena.apigateway.config;
+
+import com.unimagdalena.apigateway.shedding.LoadSheddingProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(LoadSheddingProperties.class)
+public class LoadSheddingConfig {
+}
@@ -0,0 +1,10 @@
+package com.unimagdalena.apigateway.config;
+
+import com.unimagdalena.apigateway.ratelimit.RateLimitProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+}
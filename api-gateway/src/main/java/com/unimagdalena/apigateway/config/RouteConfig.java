@@ -1,39 +1,244 @@
 package com.unimagdalena.apigateway.config;
 
+import com.unimagdalena.apigateway.cache.CacheRule;
+import com.unimagdalena.apigateway.cache.CacheScope;
+import com.unimagdalena.apigateway.filter.factory.AdaptiveConcurrencyFilterFactory;
+import com.unimagdalena.apigateway.filter.factory.BulkheadFilterFactory;
+import com.unimagdalena.apigateway.filter.factory.CatalogAggregationFilterFactory;
+import com.unimagdalena.apigateway.filter.factory.HedgingFilterFactory;
+import com.unimagdalena.apigateway.filter.factory.LoadSheddingFilterFactory;
 import com.unimagdalena.apigateway.filter.factory.ProductCachingFilterFactory;
+import com.unimagdalena.apigateway.filter.factory.RateLimitFilterFactory;
 import com.unimagdalena.apigateway.filter.factory.ServiceAuthHeaderFilterFactory;
+import com.unimagdalena.apigateway.shedding.PriorityClass;
+import com.unimagdalena.apigateway.upstream.UpstreamPoolRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 public class RouteConfig {
 
+    // Respuestas del servicio que el circuit breaker cuenta como fallas
+    private static final Set<String> FAILURE_STATUS_CODES = Set.of("500", "502", "503", "504");
+
     @Bean
     public RouteLocator customRouteLocator(RouteLocatorBuilder builder,
-                                           ServiceAuthHeaderFilterFactory authFilterFactory, ProductCachingFilterFactory productCachingFilterFactory) {
+                                           ServiceAuthHeaderFilterFactory authFilterFactory, ProductCachingFilterFactory productCachingFilterFactory,
+                                           RateLimitFilterFactory rateLimitFilterFactory,
+                                           BulkheadFilterFactory bulkheadFilterFactory,
+                                           HedgingFilterFactory hedgingFilterFactory,
+                                           AdaptiveConcurrencyFilterFactory adaptiveConcurrencyFilterFactory,
+                                           LoadSheddingFilterFactory loadSheddingFilterFactory,
+                                           CatalogAggregationFilterFactory catalogAggregationFilterFactory,
+                                           UpstreamPoolRegistry upstreamPools) {
+        // Las ramas de la ruta compuesta comparten el caché de la ruta de cada servicio
+        GatewayFilter productCache = productCachingFilterFactory.apply(c -> {
+            // Las escrituras invalidan sus entradas, por lo que el TTL puede ser largo
+            c.setTtlSeconds(3600);
+            // Cambios que no pasan por el gateway (precios, stock): el TTL sigue a cada producto
+            c.setAdaptiveTtl(true);
+            c.setMinTtlSeconds(300);
+            c.setMaxTtlSeconds(6 * 3600);
+            c.setStaleWhileRevalidateSeconds(60);
+            c.setStaleIfErrorSeconds(600);
+            // El listado completo es la respuesta más pesada del catálogo
+            c.setMaxCacheableBodyBytes(2 * 1024 * 1024);
+            c.addRule(new CacheRule("/api/products/{id}")
+                    .cacheStatus(200, 3600)
+                    .cacheStatus(404, 30)
+                    .tags("product:{id}")
+                    .invalidatedBy("/api/products/{id}"));
+            c.addRule(new CacheRule("/api/products")
+                    .queryParams("*")
+                    .cacheStatus(200, 3600)
+                    .tags("products:list")
+                    .invalidatedBy("/api/products/**"));
+        });
+        // El stock también cambia por order-service sin pasar por el gateway: TTL corto
+        GatewayFilter inventoryCache = productCachingFilterFactory.apply(c -> c.addRule(new CacheRule("/api/inventory/{id}")
+                .cacheStatus(200, 5)
+                .tags("inventory:{id}")
+                .invalidatedBy("/api/inventory/{id}")));
+
         return builder.routes()
                 .route("order-service", r -> r
                         .path("/api/orders/**")
                         .filters(f -> f
+                                // Cada pedido llega a la base de datos de order-service: cuota por usuario
+                                .filter(rateLimitFilterFactory.apply(c -> {
+                                    c.setName("order-service");
+                                    c.setKeyType(RateLimitFilterFactory.KeyType.SUBJECT);
+                                    c.setRequestsPerSecond(10);
+                                    c.setBurst(20);
+                                }))
+                                // Los pedidos son de cada usuario: se cachean por el sub del token
+                                .filter(productCachingFilterFactory.apply(c -> c.addRule(new CacheRule("/api/orders/{id}")
+                                        .scope(CacheScope.PRINCIPAL)
+                                        .cacheStatus(200, 30)
+                                        .tags("order:{id}")
+                                        .invalidatedBy("/api/orders/{id}"))))
+                                // La compra es lo último que se descarta cuando el gateway se satura
+                                .filter(loadSheddingFilterFactory.apply(c -> {
+                                    c.setName("order-service");
+                                    c.setDefaultPriority(PriorityClass.HIGH);
+                                    c.priority(HttpMethod.POST, PriorityClass.CRITICAL);
+                                }))
+                                .filter(bulkheadFilterFactory.apply(c -> {
+                                    c.setName("order-service");
+                                    c.setMaxConcurrentCalls(200);
+                                }))
+                                // Servicio con JPA: el límite sigue la latencia, que sube con la carga de la base de datos
+                                .filter(adaptiveConcurrencyFilterFactory.apply(c -> {
+                                    c.setName("order-service");
+                                    c.setMaxLimit(200);
+                                }))
+                                .circuitBreaker(c -> c
+                                        .setName("order-service")
+                                        .setFallbackUri("forward:/fallback/order-service")
+                                        .setStatusCodes(FAILURE_STATUS_CODES))
                                 .filter(authFilterFactory.apply(c -> {
                                     c.setHeaderName("X-Service-Auth");
                                     c.setHeaderValue("order-service-key");
                                 })))
+                        // Escrituras con llamada a inventario: más margen de respuesta
+                        .metadata(upstreamPools.define(pool -> {
+                            pool.setName("order-service");
+                            pool.setMaxConnections(100);
+                            pool.setAcquireTimeout(Duration.ofSeconds(2));
+                            pool.setResponseTimeout(Duration.ofSeconds(5));
+                        }))
                         .uri("lb://order-service"))
                 .route("product-service", r -> r
                         .path("/api/products/**")
-                        .filters(f -> f.filter(productCachingFilterFactory.apply(c -> {
-                            c.setTtlSeconds(300);
-                        })))
+                        .filters(f -> f
+                                .filter(rateLimitFilterFactory.apply(c -> {
+                                    c.setName("product-service");
+                                    c.setRequestsPerSecond(50);
+                                    c.setBurst(100);
+                                }))
+                                .filter(productCache)
+                                // La navegación anónima del catálogo se descarta primero
+                                .filter(loadSheddingFilterFactory.apply(c -> {
+                                    c.setName("product-service");
+                                    c.setAnonymousPriority(PriorityClass.LOW);
+                                    c.priority(HttpMethod.POST, PriorityClass.HIGH)
+                                            .priority(HttpMethod.PUT, PriorityClass.HIGH)
+                                            .priority(HttpMethod.DELETE, PriorityClass.HIGH);
+                                }))
+                                .filter(bulkheadFilterFactory.apply(c -> {
+                                    c.setName("product-service");
+                                    c.setMaxConcurrentCalls(300);
+                                }))
+                                // El 503 del fallback pasa por el filtro de caché, que sirve la copia vencida
+                                .circuitBreaker(c -> c
+                                        .setName("product-service")
+                                        .setFallbackUri("forward:/fallback/product-service")
+                                        .setStatusCodes(FAILURE_STATUS_CODES))
+                                // Las lecturas de un producto se cubren con otra instancia
+                                .filter(hedgingFilterFactory.apply(c -> {
+                                    c.setName("product-service");
+                                    c.addPath("/api/products/{id}");
+                                })))
+                        // Lecturas del catálogo: el pool más grande y timeouts cortos
+                        .metadata(upstreamPools.define(pool -> {
+                            pool.setName("product-service");
+                            pool.setMaxConnections(200);
+                            pool.setAcquireTimeout(Duration.ofMillis(500));
+                            pool.setResponseTimeout(Duration.ofSeconds(4));
+                        }))
                         .uri("lb://product-service"))
                 .route("inventory-service", r -> r
                         .path("/api/inventory/**")
+                        .filters(f -> f
+                                .filter(inventoryCache)
+                                .filter(loadSheddingFilterFactory.apply(c -> c.setName("inventory-service")))
+                                .filter(bulkheadFilterFactory.apply(c -> {
+                                    c.setName("inventory-service");
+                                    c.setMaxConcurrentCalls(150);
+                                }))
+                                .filter(adaptiveConcurrencyFilterFactory.apply(c -> {
+                                    c.setName("inventory-service");
+                                    c.setMaxLimit(150);
+                                }))
+                                .circuitBreaker(c -> c
+                                        .setName("inventory-service")
+                                        .setFallbackUri("forward:/fallback/inventory-service")
+                                        .setStatusCodes(FAILURE_STATUS_CODES))
+                                .filter(hedgingFilterFactory.apply(c -> {
+                                    c.setName("inventory-service");
+                                    c.addPath("/api/inventory/product/{productName}");
+                                })))
+                        .metadata(upstreamPools.define(pool -> {
+                            pool.setName("inventory-service");
+                            pool.setMaxConnections(100);
+                            pool.setAcquireTimeout(Duration.ofMillis(500));
+                            pool.setResponseTimeout(Duration.ofSeconds(4));
+                        }))
                         .uri("lb://inventory-service"))
                 .route("payment-service", r -> r
                         .path("/api/payments/**")
+                        .filters(f -> f
+                                .filter(rateLimitFilterFactory.apply(c -> {
+                                    c.setName("payment-service");
+                                    c.setKeyType(RateLimitFilterFactory.KeyType.SUBJECT);
+                                    c.setRequestsPerSecond(5);
+                                    c.setBurst(10);
+                                }))
+                                .filter(productCachingFilterFactory.apply(c -> c.addRule(new CacheRule("/api/payments/{id}")
+                                        .scope(CacheScope.PRINCIPAL)
+                                        .cacheStatus(200, 30)
+                                        .tags("payment:{id}")
+                                        .invalidatedBy("/api/payments/{id}"))))
+                                .filter(loadSheddingFilterFactory.apply(c -> {
+                                    c.setName("payment-service");
+                                    c.setDefaultPriority(PriorityClass.HIGH);
+                                    c.priority(HttpMethod.POST, PriorityClass.CRITICAL);
+                                }))
+                                .filter(bulkheadFilterFactory.apply(c -> {
+                                    c.setName("payment-service");
+                                    c.setMaxConcurrentCalls(100);
+                                }))
+                                .filter(adaptiveConcurrencyFilterFactory.apply(c -> {
+                                    c.setName("payment-service");
+                                    c.setMaxLimit(100);
+                                }))
+                                .circuitBreaker(c -> c
+                                        .setName("payment-service")
+                                        .setFallbackUri("forward:/fallback/payment-service")
+                                        .setStatusCodes(FAILURE_STATUS_CODES)))
+                        // Pagos lentos (pasarela externa): pool pequeño aislado del catálogo
+                        .metadata(upstreamPools.define(pool -> {
+                            pool.setName("payment-service");
+                            pool.setMaxConnections(50);
+                            pool.setAcquireTimeout(Duration.ofSeconds(2));
+                            pool.setResponseTimeout(Duration.ofSeconds(8));
+                        }))
                         .uri("lb://payment-service"))
+                // Vista de producto para el frontend: producto e inventario en una sola llamada.
+                // Se cobra una vez en el límite del catálogo; cada rama usa el caché de su servicio
+                .route("catalog", r -> r
+                        .path("/api/catalog/{id}").and().method(HttpMethod.GET)
+                        .filters(f -> f
+                                .filter(rateLimitFilterFactory.apply(c -> {
+                                    c.setName("catalog");
+                                    c.setRequestsPerSecond(50);
+                                    c.setBurst(100);
+                                }))
+                                .filter(catalogAggregationFilterFactory.apply(c -> {
+                                    c.setName("catalog");
+                                    c.addBranch("product", "lb://product-service/api/products/{id}",
+                                                    Duration.ofSeconds(2), productCache)
+                                            .addBranch("inventory", "lb://inventory-service/api/inventory/{id}",
+                                                    Duration.ofMillis(800), inventoryCache);
+                                })))
+                        .uri("no://op"))
               .route("keycloak-token", r -> r
                 .path("/auth")
                 .filters(f -> f.setPath("/realms/master/protocol/openid-connect/token"))
@@ -1,11 +1,18 @@
 package com.unimagdalena.apigateway.controller;
 
+import com.unimagdalena.apigateway.cache.CacheAdminAccess;
+import com.unimagdalena.apigateway.cache.HotKeyTracker;
 import com.unimagdalena.apigateway.filter.factory.ProductCachingFilterFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -15,16 +22,95 @@ public class CacheAdminController {
     @Autowired
     private ProductCachingFilterFactory cachingFilter;
 
+    @Autowired
+    private HotKeyTracker hotKeyTracker;
+
+    @Autowired
+    private CacheAdminAccess cacheAdminAccess;
+
     @GetMapping("/stats")
     public Mono<Map<String, Object>> getCacheStats() {
         return Mono.just(cachingFilter.getCacheStats());
     }
 
+    @GetMapping("/hot-keys")
+    public Mono<List<Map<String, Object>>> getHotKeys(ServerHttpRequest httpRequest) {
+        if (!cacheAdminAccess.isAllowed(httpRequest)) {
+            return unauthorized();
+        }
+        List<Map<String, Object>> hotKeys = hotKeyTracker.hotKeys().stream()
+                .map(hotKey -> {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("key", hotKey.getKey());
+                    item.put("uri", hotKey.getUri().toString());
+                    item.put("estimatedRequests", hotKey.getEstimate());
+                    return item;
+                })
+                .toList();
+        return Mono.just(hotKeys);
+    }
+
+    // Lista recursos cacheados, incluidos los de cada usuario (pedidos, pagos): sólo con credencial
+    @GetMapping("/keys")
+    public Mono<Map<String, Object>> getKeys(@RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "50") int size,
+                                             ServerHttpRequest httpRequest) {
+        if (!cacheAdminAccess.isAllowed(httpRequest)) {
+            return unauthorized();
+        }
+        int pageSize = Math.max(1, Math.min(size, 500));
+        Map<String, Object> response = new HashMap<>();
+        response.put("page", Math.max(0, page));
+        response.put("size", pageSize);
+        response.put("entries", cachingFilter.cachedEntries(Math.max(0, page), pageSize));
+        return Mono.just(response);
+    }
+
     @DeleteMapping("/clear")
-    public Mono<Map<String, String>> clearCache() {
+    public Mono<Map<String, String>> clearCache(ServerHttpRequest httpRequest) {
+        if (!cacheAdminAccess.isAllowed(httpRequest)) {
+            return unauthorized();
+        }
         cachingFilter.clearCache();
         Map<String, String> response = new HashMap<>();
         response.put("status", "Cache limpiado correctamente");
         return Mono.just(response);
     }
-}
\ No newline at end of file
+
+    // Lo invoca product-service (con el token de administración) tras cada escritura para invalidar
+    // sólo las entradas afectadas, y las demás réplicas al difundir una invalidación.
+    // También acepta claves exactas (o recursos como "GET /api/products/1") y prefijos de recurso.
+    @PostMapping("/invalidate")
+    public Mono<Map<String, Object>> invalidate(@RequestBody Map<String, List<String>> request,
+                                                ServerHttpRequest httpRequest) {
+        if (!cacheAdminAccess.isAllowed(httpRequest)) {
+            return unauthorized();
+        }
+        List<String> tags = request.getOrDefault("tags", List.of());
+        List<String> keys = request.getOrDefault("keys", List.of());
+        List<String> prefixes = request.getOrDefault("prefixes", List.of());
+        int removed = 0;
+        if (!tags.isEmpty()) {
+            removed += cachingFilter.invalidateTags(new HashSet<>(tags));
+        }
+        if (!keys.isEmpty()) {
+            removed += cachingFilter.invalidateKeys(new HashSet<>(keys));
+        }
+        for (String prefix : prefixes) {
+            removed += cachingFilter.invalidatePrefix(prefix);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("tags", tags);
+        response.put("keys", keys);
+        response.put("prefixes", prefixes);
+        response.put("removedEntries", removed);
+        return Mono.just(response);
+    }
+
+    // Vaciar o invalidar el caché desde fuera provocaría una avalancha de misses hacia los servicios,
+    // y los listados de claves revelan qué recursos (y de qué usuarios) se consultan
+    private static <T> Mono<T> unauthorized() {
+        return Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                "Se requiere " + CacheAdminAccess.ADMIN_TOKEN_HEADER));
+    }
+}
@@ -0,0 +1,42 @@
+package com.unimagdalena.apigateway.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Respuesta de los circuit breakers cuando un servicio falla o el circuito está abierto.
+ * En la ruta de productos el filtro de caché convierte este 503 en la copia vencida, si la hay.
+ */
+@RestController
+@RequestMapping("/fallback")
+public class FallbackController {
+
+    @Value("${gateway.fallback.retry-after-seconds:10}")
+    private long retryAfterSeconds;
+
+    @RequestMapping("/{service}")
+    public Mono<ResponseEntity<Map<String, Object>>> fallback(@PathVariable String service,
+                                                              ServerWebExchange exchange) {
+        Throwable cause = exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR);
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", "Servicio no disponible temporalmente");
+        body.put("service", service);
+        if (cause != null) {
+            body.put("cause", cause.getClass().getSimpleName());
+        }
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(body));
+    }
+}
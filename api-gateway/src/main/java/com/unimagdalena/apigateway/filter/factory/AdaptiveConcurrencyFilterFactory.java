@@ -0,0 +1,198 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.concurrency.GradientLimiter;
+import com.unimagdalena.apigateway.filter.ServiceUnavailableWriter;
+import com.unimagdalena.apigateway.filter.global.PooledRoutingFilter;
+import com.unimagdalena.apigateway.shedding.LoadShedder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Límite de solicitudes en curso que se ajusta a la capacidad real del servicio según su
+ * latencia (ver {@link GradientLimiter}). A diferencia del bulkhead, que es un techo fijo, este
+ * límite baja cuando la base de datos del servicio se satura y sube cuando se libera. Como en
+ * el bulkhead, cada clase de prioridad sólo ocupa su fracción del límite.
+ */
+@Component
+public class AdaptiveConcurrencyFilterFactory extends AbstractGatewayFilterFactory<AdaptiveConcurrencyFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyFilterFactory.class);
+
+    private final MeterRegistry meterRegistry;
+    private final LoadShedder loadShedder;
+    private final ServiceUnavailableWriter unavailableWriter;
+
+    public AdaptiveConcurrencyFilterFactory(MeterRegistry meterRegistry, LoadShedder loadShedder,
+                                            ServiceUnavailableWriter unavailableWriter) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.loadShedder = loadShedder;
+        this.unavailableWriter = unavailableWriter;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        GradientLimiter limiter = new GradientLimiter(config.getInitialLimit(), config.getMinLimit(),
+                config.getMaxLimit(), config.getTolerance(), config.getSmoothing(),
+                config.getUpdateInterval().toNanos(), config.getBaselineWindow().toNanos(), System.nanoTime());
+        Gauge.builder("gateway.concurrency.limit", limiter, GradientLimiter::getLimit)
+                .tag("name", config.getName())
+                .description("Solicitudes en curso permitidas según la latencia del servicio")
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.in.flight", limiter, GradientLimiter::getInFlight)
+                .tag("name", config.getName())
+                .register(meterRegistry);
+        Counter rejected = Counter.builder("gateway.concurrency.rejected")
+                .tag("name", config.getName())
+                .description("Solicitudes rechazadas por el límite adaptativo")
+                .register(meterRegistry);
+
+        return (exchange, chain) -> {
+            if (!limiter.tryAcquire(loadShedder.admitFraction(exchange))) {
+                rejected.increment();
+                log.debug("Límite adaptativo de {} alcanzado: {}", config.getName(), limiter.getLimit());
+                return unavailableWriter.write(exchange.getResponse(), "Servicio saturado", config.getName(),
+                        config.getRetryAfterSeconds());
+            }
+            return chain.filter(exchange)
+                    .doFinally(signal -> release(limiter, exchange, signal));
+        };
+    }
+
+    /**
+     * Registra la muestra del intercambio con el servicio. La latencia va del envío de la solicitud
+     * a la llegada de la respuesta (la marcan el filtro de enrutamiento), sin el fallback ni la
+     * escritura al cliente. Las cancelaciones del cliente y los fallbacks del circuit breaker no
+     * cuentan, salvo un timeout hacia el servicio, que sí indica saturación.
+     */
+    private static void release(GradientLimiter limiter, ServerWebExchange exchange, SignalType signal) {
+        long now = System.nanoTime();
+        Throwable fallbackCause = exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR);
+        if (fallbackCause != null) {
+            if (isTimeout(fallbackCause)) {
+                limiter.release(0, true, now);
+            } else {
+                limiter.releaseWithoutSample();
+            }
+            return;
+        }
+        Long sentAt = exchange.getAttribute(PooledRoutingFilter.UPSTREAM_REQUEST_SENT_ATTR);
+        Long receivedAt = exchange.getAttribute(PooledRoutingFilter.UPSTREAM_RESPONSE_RECEIVED_ATTR);
+        if (sentAt != null && receivedAt != null && receivedAt >= sentAt) {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean overloaded = status != null && (status.value() == 503 || status.value() == 504);
+            limiter.release(receivedAt - sentAt, overloaded, now);
+        } else if (signal == SignalType.ON_ERROR) {
+            // Error de conexión o timeout de respuesta sin fallback
+            limiter.release(0, true, now);
+        } else {
+            limiter.releaseWithoutSample();
+        }
+    }
+
+    // Timeout del TimeLimiter o timeout de respuesta del filtro de enrutamiento (504)
+    private static boolean isTimeout(Throwable error) {
+        return error instanceof TimeoutException
+                || error instanceof ResponseStatusException statusException
+                && statusException.getStatusCode().value() == HttpStatus.GATEWAY_TIMEOUT.value();
+    }
+
+    public static class Config {
+        private String name = "default"; // Servicio protegido (etiqueta de las métricas)
+        private int initialLimit = 20;
+        private int minLimit = 5;
+        private int maxLimit = 200; // Normalmente el maxConcurrentCalls del bulkhead
+        private double tolerance = 1.5; // Latencia sobre la base que se acepta antes de bajar el límite
+        private double smoothing = 0.2; // Peso de cada actualización sobre el límite anterior
+        private Duration updateInterval = Duration.ofMillis(250); // Ventana de muestras por actualización
+        private Duration baselineWindow = Duration.ofSeconds(30); // Tiempo tras el que se olvida la latencia base
+        private long retryAfterSeconds = 1;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public void setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+        }
+
+        public Duration getUpdateInterval() {
+            return updateInterval;
+        }
+
+        public void setUpdateInterval(Duration updateInterval) {
+            this.updateInterval = updateInterval;
+        }
+
+        public Duration getBaselineWindow() {
+            return baselineWindow;
+        }
+
+        public void setBaselineWindow(Duration baselineWindow) {
+            this.baselineWindow = baselineWindow;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.filter.ServiceUnavailableWriter;
+import com.unimagdalena.apigateway.shedding.LoadShedder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limita las solicitudes simultáneas hacia un servicio. Si el servicio se vuelve lento, sus
+ * solicitudes no pueden acaparar las conexiones del pool: las que exceden el límite reciben
+ * un 503 inmediato con Retry-After en lugar de esperar el timeout. Cada clase de prioridad
+ * ocupa sólo su fracción del límite, así que al llenarse se rechaza antes la navegación.
+ */
+@Component
+public class BulkheadFilterFactory extends AbstractGatewayFilterFactory<BulkheadFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkheadFilterFactory.class);
+
+    private final MeterRegistry meterRegistry;
+    private final LoadShedder loadShedder;
+    private final ServiceUnavailableWriter unavailableWriter;
+
+    public BulkheadFilterFactory(MeterRegistry meterRegistry, LoadShedder loadShedder,
+                                 ServiceUnavailableWriter unavailableWriter) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.loadShedder = loadShedder;
+        this.unavailableWriter = unavailableWriter;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("gateway.bulkhead.active", active, AtomicInteger::get)
+                .tag("name", config.getName())
+                .description("Solicitudes en curso hacia el servicio")
+                .register(meterRegistry);
+        Gauge.builder("gateway.bulkhead.max", config, Config::getMaxConcurrentCalls)
+                .tag("name", config.getName())
+                .register(meterRegistry);
+        Counter rejected = Counter.builder("gateway.bulkhead.rejected")
+                .tag("name", config.getName())
+                .description("Solicitudes rechazadas por el límite de concurrencia")
+                .register(meterRegistry);
+
+        return (exchange, chain) -> {
+            int limit = Math.max(1, (int) Math.ceil(config.getMaxConcurrentCalls() * loadShedder.admitFraction(exchange)));
+            if (active.incrementAndGet() > limit) {
+                active.decrementAndGet();
+                rejected.increment();
+                log.debug("Bulkhead {} lleno: {} solicitudes en curso", config.getName(), limit);
+                return unavailableWriter.write(exchange.getResponse(), "Servicio saturado", config.getName(),
+                        config.getRetryAfterSeconds());
+            }
+            // Se libera al terminar la solicitud, con éxito, error o cancelación
+            return chain.filter(exchange)
+                    .doFinally(signal -> active.decrementAndGet());
+        };
+    }
+
+    public static class Config {
+        private String name = "default"; // Servicio protegido (etiqueta de las métricas)
+        private int maxConcurrentCalls = 100; // Solicitudes simultáneas permitidas
+        private long retryAfterSeconds = 1; // Sugerencia para el cliente al rechazar
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.unimagdalena.apigateway.aggregation.BufferedResponse;
+import com.unimagdalena.apigateway.aggregation.ServiceClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ruta compuesta para el frontend: consulta varios servicios en paralelo y combina sus
+ * respuestas JSON en una sola. Cada rama llama a su servicio con el cliente balanceado (lb://)
+ * y, si se le indica, a través del filtro de caché de la ruta del servicio, así que comparte sus
+ * entradas; la solicitud compuesta sólo se cobra en los límites de su propia ruta. Cada rama
+ * tiene su propio timeout; si falla, la respuesta sale sin ella y con "partial": true. La
+ * primera rama es el recurso principal: sus campos van en la raíz y, si responde 4xx, ese estado
+ * se devuelve tal cual. Las demás se anidan bajo su nombre.
+ * El filtro responde por sí mismo y no continúa la cadena hacia un servicio.
+ */
+@Component
+public class CatalogAggregationFilterFactory extends AbstractGatewayFilterFactory<CatalogAggregationFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogAggregationFilterFactory.class);
+
+    // La respuesta se combina en JSON: sin compresión, sin 304 y sin formatos alternativos
+    private static final List<String> BRANCH_SKIPPED_HEADERS = List.of(
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT);
+
+    private final ServiceClient serviceClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public CatalogAggregationFilterFactory(ServiceClient serviceClient, ObjectMapper objectMapper,
+                                           MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.serviceClient = serviceClient;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getBranches().isEmpty()) {
+            throw new IllegalArgumentException("La ruta compuesta " + config.getName() + " no tiene ramas");
+        }
+        return (exchange, chain) -> {
+            Map<String, String> variables = ServerWebExchangeUtils.getUriTemplateVariables(exchange);
+            List<Mono<BranchResult>> calls = new ArrayList<>();
+            for (Branch branch : config.getBranches()) {
+                calls.add(call(config, branch, variables, exchange));
+            }
+            // zip conserva el orden de las ramas: el primer resultado es siempre el recurso principal
+            return Mono.zip(calls, results -> {
+                        List<BranchResult> ordered = new ArrayList<>(results.length);
+                        for (Object result : results) {
+                            ordered.add((BranchResult) result);
+                        }
+                        return ordered;
+                    })
+                    .flatMap(results -> write(exchange.getResponse(), results));
+        };
+    }
+
+    private Mono<BranchResult> call(Config config, Branch branch, Map<String, String> variables,
+                                    ServerWebExchange exchange) {
+        URI uri = UriComponentsBuilder.fromUriString(branch.getUri())
+                .buildAndExpand(variables)
+                .encode()
+                .toUri();
+        // Subsolicitud con la ruta del servicio, para que el caché la reconozca como propia
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .uri(UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                        .replacePath(uri.getRawPath())
+                        .replaceQuery(uri.getRawQuery())
+                        .build(true)
+                        .toUri())
+                .headers(headers -> {
+                    BRANCH_SKIPPED_HEADERS.forEach(headers::remove);
+                    headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+                })
+                .build();
+        BufferedResponse response = new BufferedResponse(exchange.getResponse().bufferFactory());
+        ServerWebExchange branchExchange = exchange.mutate().request(request).response(response).build();
+        GatewayFilterChain service = target -> serviceClient.get(uri, target);
+        Mono<Void> load = branch.getCache() != null
+                ? branch.getCache().filter(branchExchange, service)
+                : service.filter(branchExchange);
+        return load
+                .timeout(branch.getTimeout())
+                .then(Mono.fromCallable(() -> toResult(branch, response)))
+                .onErrorResume(error -> {
+                    String reason = error instanceof TimeoutException ? "timeout" : "error";
+                    log.debug("Rama {} de {} fallida ({}): {}", branch.getName(), config.getName(), reason, error.getMessage());
+                    return Mono.just(BranchResult.failed(branch.getName(), reason));
+                })
+                .doOnNext(result -> outcomeCounter(config, branch, result.outcome()).increment());
+    }
+
+    private BranchResult toResult(Branch branch, BufferedResponse response) {
+        int status = response.getStatusCode() != null ? response.getStatusCode().value() : 200;
+        byte[] raw = response.getBody();
+        String cacheStatus = response.getHeaders().getFirst("X-Cache");
+        if (status >= 200 && status < 300) {
+            try {
+                JsonNode body = raw.length == 0 ? null : objectMapper.readTree(raw);
+                return new BranchResult(branch.getName(), status, body, raw, null, cacheStatus);
+            } catch (IOException e) {
+                return BranchResult.failed(branch.getName(), "invalid_json");
+            }
+        }
+        // 404 es una respuesta válida (producto sin inventario); 429 y 5xx cuentan como falla de la rama
+        if (status >= 400 && status < 500 && status != 429) {
+            return new BranchResult(branch.getName(), status, null, raw, null, cacheStatus);
+        }
+        return BranchResult.failed(branch.getName(), "status_" + status);
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, List<BranchResult> results) {
+        BranchResult main = results.get(0);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set("X-Aggregate-Cache", cacheSummary(results));
+
+        // Sin el recurso principal no hay nada que componer: se devuelve su error tal cual
+        if (main.error() == null && main.status() >= 400) {
+            response.setStatusCode(HttpStatus.valueOf(main.status()));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(main.raw())));
+        }
+
+        ObjectNode merged = main.body() instanceof ObjectNode object ? object : objectMapper.createObjectNode();
+        ObjectNode errors = objectMapper.createObjectNode();
+        if (main.error() != null) {
+            errors.put(main.name(), main.error());
+        }
+        for (BranchResult branch : results.subList(1, results.size())) {
+            if (branch.error() != null) {
+                errors.put(branch.name(), branch.error());
+                merged.putNull(branch.name());
+            } else {
+                merged.set(branch.name(), branch.body());
+            }
+        }
+        boolean allFailed = results.stream().allMatch(result -> result.error() != null);
+        if (!errors.isEmpty()) {
+            merged.put("partial", true);
+            merged.set("errors", errors);
+        }
+        response.setStatusCode(allFailed ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK);
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(merged))));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+    // Estado del caché de cada rama, p. ej. "product=HIT, inventory=MISS"
+    private static String cacheSummary(List<BranchResult> results) {
+        StringJoiner summary = new StringJoiner(", ");
+        for (BranchResult result : results) {
+            summary.add(result.name() + "=" + (result.cacheStatus() != null ? result.cacheStatus() : "NONE"));
+        }
+        return summary.toString();
+    }
+
+    private Counter outcomeCounter(Config config, Branch branch, String outcome) {
+        return Counter.builder("gateway.aggregation.branch")
+                .tag("name", config.getName())
+                .tag("branch", branch.getName())
+                .tag("outcome", outcome)
+                .description("Resultado de cada rama de una ruta compuesta")
+                .register(meterRegistry);
+    }
+
+    private record BranchResult(String name, int status, JsonNode body, byte[] raw, String error, String cacheStatus) {
+
+        static BranchResult failed(String name, String error) {
+            return new BranchResult(name, 0, null, new byte[0], error, null);
+        }
+
+        String outcome() {
+            return error != null ? error : status >= 400 ? "status_" + status : "ok";
+        }
+    }
+
+    public static class Branch {
+        private String name; // Campo de la respuesta combinada
+        private String uri; // Servicio y ruta, con las variables de la ruta compuesta, p. ej. lb://product-service/api/products/{id}
+        private Duration timeout = Duration.ofSeconds(2);
+        private GatewayFilter cache; // Filtro de caché de la ruta del servicio; null si la rama no se cachea
+
+        public Branch() {
+        }
+
+        public Branch(String name, String uri, Duration timeout, GatewayFilter cache) {
+            this.name = name;
+            this.uri = uri;
+            this.timeout = timeout;
+            this.cache = cache;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public void setUri(String uri) {
+            this.uri = uri;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public GatewayFilter getCache() {
+            return cache;
+        }
+
+        public void setCache(GatewayFilter cache) {
+            this.cache = cache;
+        }
+    }
+
+    public static class Config {
+        private String name = "default"; // Ruta compuesta (etiqueta de las métricas)
+        private List<Branch> branches = new ArrayList<>(); // La primera es el recurso principal
+
+        public Config addBranch(String name, String uri, Duration timeout) {
+            return addBranch(name, uri, timeout, null);
+        }
+
+        public Config addBranch(String name, String uri, Duration timeout, GatewayFilter cache) {
+            branches.add(new Branch(name, uri, timeout, cache));
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<Branch> getBranches() {
+            return branches;
+        }
+
+        public void setBranches(List<Branch> branches) {
+            this.branches = branches;
+        }
+    }
+}
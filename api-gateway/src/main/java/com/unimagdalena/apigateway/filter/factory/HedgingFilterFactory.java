@@ -0,0 +1,152 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.hedging.HedgePolicy;
+import com.unimagdalena.apigateway.hedging.LatencyTracker;
+import com.unimagdalena.apigateway.hedging.RetryBudget;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Solicitudes de cobertura (hedging) y reintentos con presupuesto para lecturas idempotentes.
+ * Si la instancia elegida no responde antes del percentil configurado de la ruta (p95 por
+ * defecto), se envía la misma solicitud a otra instancia y se usa la primera respuesta; la
+ * otra se cancela. Los reintentos y las coberturas consumen un presupuesto proporcional al
+ * tráfico, así que una caída del servicio no multiplica la carga.
+ *
+ * Este filtro sólo marca las solicitudes GET/HEAD que coinciden con las rutas configuradas; los
+ * intentos los hace HedgingRoutingFilter después del balanceador, con el pool, los timeouts y el
+ * streaming de la respuesta del enrutamiento normal. Puede ir en cualquier posición de la ruta.
+ */
+@Component
+public class HedgingFilterFactory extends AbstractGatewayFilterFactory<HedgingFilterFactory.Config> {
+
+    private static final Set<HttpMethod> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD);
+    private static final PathPatternParser PATTERN_PARSER = new PathPatternParser();
+
+    private final MeterRegistry meterRegistry;
+
+    public HedgingFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> patterns = config.getPaths().stream().map(PATTERN_PARSER::parse).toList();
+        HedgePolicy policy = new HedgePolicy(config.getName(),
+                new LatencyTracker(config.getHedgePercentile(), config.getMinSamples(), 10_000),
+                new RetryBudget(config.getRetryBudgetPercent(), config.getMinRetryTokens()),
+                config.getMinHedgeDelay(), config.getMaxHedgeDelay(), meterRegistry);
+
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (SAFE_METHODS.contains(request.getMethod()) && matches(patterns, request)) {
+                policy.onRequest();
+                exchange.getAttributes().put(HedgePolicy.HEDGE_POLICY_ATTR, policy);
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    private static boolean matches(List<PathPattern> patterns, ServerHttpRequest request) {
+        PathContainer path = request.getPath().pathWithinApplication();
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static class Config {
+        private String name = "default"; // Servicio (etiqueta de las métricas)
+        private List<String> paths = new ArrayList<>(); // Rutas idempotentes que se pueden cubrir
+        private double hedgePercentile = 0.95; // Latencia a partir de la cual se envía la cobertura
+        private int minSamples = 100; // Muestras necesarias antes de confiar en el percentil
+        private Duration minHedgeDelay = Duration.ofMillis(20);
+        private Duration maxHedgeDelay = Duration.ofSeconds(1);
+        private double retryBudgetPercent = 10; // Reintentos y coberturas como % del tráfico
+        private int minRetryTokens = 10; // Saldo inicial y máximo del presupuesto
+
+        public Config addPath(String path) {
+            paths.add(path);
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public double getHedgePercentile() {
+            return hedgePercentile;
+        }
+
+        public void setHedgePercentile(double hedgePercentile) {
+            this.hedgePercentile = hedgePercentile;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public Duration getMinHedgeDelay() {
+            return minHedgeDelay;
+        }
+
+        public void setMinHedgeDelay(Duration minHedgeDelay) {
+            this.minHedgeDelay = minHedgeDelay;
+        }
+
+        public Duration getMaxHedgeDelay() {
+            return maxHedgeDelay;
+        }
+
+        public void setMaxHedgeDelay(Duration maxHedgeDelay) {
+            this.maxHedgeDelay = maxHedgeDelay;
+        }
+
+        public double getRetryBudgetPercent() {
+            return retryBudgetPercent;
+        }
+
+        public void setRetryBudgetPercent(double retryBudgetPercent) {
+            this.retryBudgetPercent = retryBudgetPercent;
+        }
+
+        public int getMinRetryTokens() {
+            return minRetryTokens;
+        }
+
+        public void setMinRetryTokens(int minRetryTokens) {
+            this.minRetryTokens = minRetryTokens;
+        }
+    }
+}
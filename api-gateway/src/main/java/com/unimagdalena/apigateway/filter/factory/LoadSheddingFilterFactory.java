@@ -0,0 +1,128 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.cache.CachePrincipalResolver;
+import com.unimagdalena.apigateway.filter.ServiceUnavailableWriter;
+import com.unimagdalena.apigateway.shedding.LoadShedder;
+import com.unimagdalena.apigateway.shedding.PriorityClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Asigna a cada solicitud de la ruta su clase de prioridad (por método y por si trae un token
+ * válido) y la hace pasar por el {@link LoadShedder} compartido antes de ir al servicio. Va
+ * después del caché: las respuestas cacheadas no ocupan capacidad. La clase queda en el
+ * intercambio para que el bulkhead y el límite adaptativo de la ruta también la respeten.
+ */
+@Component
+public class LoadSheddingFilterFactory extends AbstractGatewayFilterFactory<LoadSheddingFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadSheddingFilterFactory.class);
+
+    private final LoadShedder loadShedder;
+    private final CachePrincipalResolver principalResolver;
+    private final ServiceUnavailableWriter unavailableWriter;
+
+    public LoadSheddingFilterFactory(LoadShedder loadShedder, CachePrincipalResolver principalResolver,
+                                     ServiceUnavailableWriter unavailableWriter) {
+        super(Config.class);
+        this.loadShedder = loadShedder;
+        this.principalResolver = principalResolver;
+        this.unavailableWriter = unavailableWriter;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> priorityOf(config, exchange.getRequest())
+                .flatMap(priority -> {
+                    exchange.getAttributes().put(LoadShedder.PRIORITY_ATTR, priority);
+                    return loadShedder.acquire(priority)
+                            .flatMap(admitted -> {
+                                if (!admitted) {
+                                    log.debug("Solicitud {} descartada por carga en {}", priority, config.getName());
+                                    return unavailableWriter.write(exchange.getResponse(), "Gateway saturado", config.getName(),
+                                            config.getRetryAfterSeconds());
+                                }
+                                return chain.filter(exchange)
+                                        .doFinally(signal -> loadShedder.release());
+                            });
+                });
+    }
+
+    // Sólo un token verificado saca a la solicitud de la clase anónima: el encabezado por sí solo no basta
+    private Mono<PriorityClass> priorityOf(Config config, ServerHttpRequest request) {
+        PriorityClass priority = config.priorityOf(request.getMethod());
+        PriorityClass anonymousPriority = config.getAnonymousPriority();
+        if (anonymousPriority == null || anonymousPriority.compareTo(priority) <= 0) {
+            return Mono.just(priority);
+        }
+        return principalResolver.subject(request)
+                .map(subject -> priority)
+                .defaultIfEmpty(anonymousPriority);
+    }
+
+    public static class Config {
+        private String name = "default"; // Ruta (para los logs)
+        private PriorityClass defaultPriority = PriorityClass.NORMAL;
+        private Map<HttpMethod, PriorityClass> methodPriorities = new HashMap<>();
+        private PriorityClass anonymousPriority; // Clase de las solicitudes sin token válido, si es más baja
+        private long retryAfterSeconds = 1;
+
+        public Config priority(HttpMethod method, PriorityClass priority) {
+            methodPriorities.put(method, priority);
+            return this;
+        }
+
+        PriorityClass priorityOf(HttpMethod method) {
+            return methodPriorities.getOrDefault(method, defaultPriority);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public PriorityClass getDefaultPriority() {
+            return defaultPriority;
+        }
+
+        public void setDefaultPriority(PriorityClass defaultPriority) {
+            this.defaultPriority = defaultPriority;
+        }
+
+        public Map<HttpMethod, PriorityClass> getMethodPriorities() {
+            return methodPriorities;
+        }
+
+        public void setMethodPriorities(Map<HttpMethod, PriorityClass> methodPriorities) {
+            this.methodPriorities = methodPriorities;
+        }
+
+        public PriorityClass getAnonymousPriority() {
+            return anonymousPriority;
+        }
+
+        public void setAnonymousPriority(PriorityClass anonymousPriority) {
+            this.anonymousPriority = anonymousPriority;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
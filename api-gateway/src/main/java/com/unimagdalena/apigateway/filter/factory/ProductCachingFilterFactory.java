@@ -1,50 +1,111 @@
 package com.unimagdalena.apigateway.filter.factory;
 
+import com.unimagdalena.apigateway.cache.AdaptiveTtl;
+import com.unimagdalena.apigateway.cache.BodyCapture;
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import com.unimagdalena.apigateway.cache.CacheEngine;
+import com.unimagdalena.apigateway.cache.CacheEntry;
+import com.unimagdalena.apigateway.cache.CacheKeyBuilder;
+import com.unimagdalena.apigateway.cache.CacheMetrics;
+import com.unimagdalena.apigateway.cache.CachePrincipalResolver;
+import com.unimagdalena.apigateway.cache.CacheRefresher;
+import com.unimagdalena.apigateway.cache.CacheRule;
+import com.unimagdalena.apigateway.cache.CacheRuleMatcher;
+import com.unimagdalena.apigateway.cache.CompiledCacheRule;
+import com.unimagdalena.apigateway.cache.ETags;
+import com.unimagdalena.apigateway.cache.GzipEncoding;
+import com.unimagdalena.apigateway.cache.HotKeyTracker;
+import com.unimagdalena.apigateway.cache.RemovalCause;
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
-import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 public class ProductCachingFilterFactory extends AbstractGatewayFilterFactory<ProductCachingFilterFactory.Config> {
 
     private static final Logger log = LoggerFactory.getLogger(ProductCachingFilterFactory.class);
-    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    private final CacheEngine cache;
+    private final CacheRefresher cacheRefresher;
+    private final CacheCluster cacheCluster;
+    private final HotKeyTracker hotKeyTracker;
+    private final CachePrincipalResolver cachePrincipalResolver;
+    private final CacheMetrics cacheMetrics;
 
-    public ProductCachingFilterFactory() {
+    // Cargas en curso por clave: las solicitudes concurrentes esperan la misma respuesta
+    private final Map<String, Sinks.One<LoadedEntry>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder upstreamLoads = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // Aumenta con cada invalidación: una carga iniciada antes no debe guardar datos ya reemplazados
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    public ProductCachingFilterFactory(CacheEngine cache, CacheRefresher cacheRefresher, CacheCluster cacheCluster,
+                                       HotKeyTracker hotKeyTracker, CachePrincipalResolver cachePrincipalResolver,
+                                       CacheMetrics cacheMetrics) {
         super(Config.class);
+        this.cache = cache;
+        this.cacheRefresher = cacheRefresher;
+        this.cacheCluster = cacheCluster;
+        this.hotKeyTracker = hotKeyTracker;
+        this.cachePrincipalResolver = cachePrincipalResolver;
+        this.cacheMetrics = cacheMetrics;
     }
 
+    // Sólo contadores: el costo no depende del número de entradas (el listado está en cachedEntries)
     public Map<String, Object> getCacheStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("cacheSize", cache.size());
-        stats.put("cachedEntries", cache.keySet());
-
-        // Contar entradas válidas e inválidas
-        long validEntries = cache.entrySet().stream()
-                .filter(entry -> !entry.getValue().isExpired())
-                .count();
-
-        stats.put("validEntries", validEntries);
-        stats.put("expiredEntries", cache.size() - validEntries);
+        stats.put("usedBytes", cache.weightedSize());
+        stats.put("maxBytes", cache.maxWeight());
+        stats.put("hits", cache.hitCount());
+        stats.put("misses", cache.missCount());
+        stats.put("evictions", cache.evictionCount());
+        stats.put("expiredEntries", cache.expiredCount());
+        Map<RemovalCause, Long> removals = new EnumMap<>(RemovalCause.class);
+        for (RemovalCause cause : RemovalCause.values()) {
+            removals.put(cause, cache.removalCount(cause));
+        }
+        stats.put("removals", removals);
+        stats.put("upstreamLoads", upstreamLoads.sum());
+        stats.put("coalescedRequests", coalescedRequests.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("inFlightLoads", inFlight.size());
+        stats.put("backgroundRefreshes", cacheRefresher.refreshCount());
+        stats.put("failedRefreshes", cacheRefresher.failedRefreshCount());
+        stats.put("clusterMembers", cacheCluster.memberCount());
+        stats.put("forwardedToPeers", cacheCluster.forwardedCount());
+        stats.put("failedPeerForwards", cacheCluster.failedForwardCount());
 
         return stats;
     }
@@ -54,81 +115,436 @@ public class ProductCachingFilterFactory extends AbstractGatewayFilterFactory<Pr
         log.info("Cache limpiado manualmente");
     }
 
+    // Página de entradas ordenadas por recurso; recorre el caché, por eso es sólo para administración
+    public List<Map<String, Object>> cachedEntries(int page, int size) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        cache.forEachEntry((key, entry) -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("key", key);
+            item.put("resource", entry.getResource());
+            item.put("status", entry.getStatusCode().value());
+            item.put("expiresAt", entry.getExpirationTime());
+            item.put("weightBytes", entry.getWeight());
+            item.put("gzip", entry.hasGzipVariant());
+            item.put("tags", entry.getTags());
+            entries.add(item);
+        });
+        entries.sort(Comparator.comparing((Map<String, Object> item) -> (String) item.get("resource"))
+                .thenComparing(item -> (String) item.get("key")));
+        int from = (int) Math.min((long) page * size, entries.size());
+        int to = Math.min(from + size, entries.size());
+        return new ArrayList<>(entries.subList(from, to));
+    }
+
+    // Acepta claves del caché o recursos legibles ("GET /api/products/1"), que cubren todas sus variantes
+    public int invalidateKeys(Set<String> keys) {
+        invalidationEpoch.incrementAndGet();
+        Set<String> matching = new HashSet<>();
+        cache.forEachEntry((key, entry) -> {
+            if (keys.contains(key) || keys.contains(entry.getResource())) {
+                matching.add(key);
+            }
+        });
+        matching.forEach(cache::invalidate);
+        invalidations.increment();
+        log.info("🧹 CACHE INVALIDADO: claves {} | {} entradas eliminadas", keys, matching.size());
+        return matching.size();
+    }
+
+    public int invalidatePrefix(String resourcePrefix) {
+        invalidationEpoch.incrementAndGet();
+        int removed = cache.invalidatePrefix(resourcePrefix);
+        invalidations.increment();
+        log.info("🧹 CACHE INVALIDADO: prefijo {} | {} entradas eliminadas", resourcePrefix, removed);
+        return removed;
+    }
+
     @Override
     public GatewayFilter apply(Config config) {
+        // Las reglas se compilan una sola vez por ruta
+        CacheRuleMatcher matcher = new CacheRuleMatcher(config.getRules(), config.getTtlSeconds());
         return (exchange, chain) -> {
             ServerHttpRequest request = exchange.getRequest();
-            String path = request.getPath().value();
-            String clientIp = request.getRemoteAddress() != null ?
-                    request.getRemoteAddress().getAddress().getHostAddress() : "unknown";
-
-            if (request.getMethod() == HttpMethod.GET && path.matches("/api/products/\\d+")) {
-                CacheEntry entry = cache.get(path);
-                if (entry != null && !entry.isExpired()) {
-                    long ttlRemaining = (entry.expirationTime - System.currentTimeMillis()) / 1000;
-                    log.info("🎯 CACHE HIT: {} | Cliente: {} | TTL restante: {}s",
-                            path, clientIp, ttlRemaining);
-                    return entry.applyCachedResponse(exchange);
-                } else {
-                    log.info("❌ CACHE MISS: {} | Cliente: {} | Cargando desde servicio", path, clientIp);
+            CompiledCacheRule rule = matcher.match(request);
+
+            if (rule != null) {
+                if (!rule.isPrincipalScoped()) {
+                    return lookup(rule, config, null, exchange, chain);
                 }
+                // Entradas por usuario: sin un token válido la solicitud no pasa por el caché
+                return cachePrincipalResolver.subject(request)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(subject -> subject.isPresent()
+                                ? lookup(rule, config, subject.get(), exchange, chain)
+                                : chain.filter(exchange));
+            }
+
+            // Las escrituras exitosas invalidan las entradas de las reglas que afectan
+            Set<String> tags = matcher.invalidatedTags(request);
+            if (!tags.isEmpty()) {
+                return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is2xxSuccessful()) {
+                        invalidateTags(tags);
+                        cacheCluster.broadcastInvalidation(tags);
+                    }
+                }));
+            }
+
+            // Para solicitudes no cacheables, continuar normalmente
+            return chain.filter(exchange);
+        };
+    }
+
+    private Mono<Void> lookup(CompiledCacheRule rule, Config config, String subject,
+                              ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        CacheLookup lookup = new CacheLookup(CacheKeyBuilder.build(rule, request, subject),
+                rule.cacheKey(request), subject, rule, config);
+        String key = lookup.key();
+        String resource = lookup.resource();
+        // El detalle por solicitud va en debug; el registro de acceso ya incluye el estado del caché
+        String clientIp = !log.isDebugEnabled() ? null : request.getRemoteAddress() != null ?
+                request.getRemoteAddress().getAddress().getHostAddress() : "unknown";
+
+        // Las revalidaciones en segundo plano siempre van al servicio
+        if (cacheRefresher.isRefreshRequest(request)) {
+            return load(lookup, null, cacheRefresher.withoutRefreshMarker(exchange), chain);
+        }
+
+        // Sólo la réplica dueña de la clave la sigue y la precarga; las entradas por usuario no se
+        // precargan, porque la recarga tendría que repetir el token del usuario
+        URI owner = cacheCluster.isPeerRequest(request) ? null : cacheCluster.ownerOf(key);
+        if (owner == null && !lookup.rule().isPrincipalScoped()) {
+            hotKeyTracker.record(key, request, lookup.rule().getVaryHeaders());
+        }
+
+        long now = System.currentTimeMillis();
+        CacheEntry entry = cache.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            long ttlRemaining = (entry.getExpirationTime() - now) / 1000;
+            log.debug("🎯 CACHE HIT: {} | Cliente: {} | TTL restante: {}s",
+                    resource, clientIp, ttlRemaining);
+            return serve(entry, exchange, "HIT", Mono.defer(() -> load(lookup, null, exchange, chain)));
+        }
+        if (entry != null && entry.isStaleWhileRevalidate(now)) {
+            boolean scheduled = cacheRefresher.refresh(key, request);
+            log.debug("⏳ CACHE STALE: {} | Cliente: {} | Revalidación {}",
+                    resource, clientIp, scheduled ? "programada" : "en curso");
+            return serve(entry, exchange, "STALE", Mono.defer(() -> load(lookup, null, exchange, chain)));
+        }
+
+        CacheEntry stale = entry != null && entry.isUsableOnError(now) ? entry : null;
+
+        // En modo compartido sólo la réplica dueña de la clave la carga y la guarda
+        if (owner != null) {
+            log.debug("↪️ CACHE MISS: {} | Cliente: {} | Reenviando a réplica {}", resource, clientIp, owner);
+            return cacheCluster.forward(owner, exchange)
+                    .onErrorResume(error -> exchange.getResponse().isCommitted()
+                            ? Mono.error(error)
+                            : load(lookup, stale, exchange, chain));
+        }
+
+        log.debug("❌ CACHE MISS: {} | Cliente: {} | Cargando desde servicio", resource, clientIp);
+        return load(lookup, stale, exchange, chain);
+    }
+
+    // Elimina las entradas con cualquiera de las etiquetas; devuelve cuántas se borraron
+    public int invalidateTags(Set<String> tags) {
+        invalidationEpoch.incrementAndGet();
+        int removed = 0;
+        for (String tag : tags) {
+            removed += cache.invalidateTag(tag);
+        }
+        invalidations.increment();
+        log.info("🧹 CACHE INVALIDADO: etiquetas {} | {} entradas eliminadas", tags, removed);
+        return removed;
+    }
+
+    private Mono<Void> load(CacheLookup lookup, CacheEntry stale, ServerWebExchange exchange,
+                            GatewayFilterChain chain) {
+        String key = lookup.key();
+        Sinks.One<LoadedEntry> loading = Sinks.one();
+        Sinks.One<LoadedEntry> current = inFlight.putIfAbsent(key, loading);
+        if (current != null) {
+            coalescedRequests.increment();
+            log.debug("🔗 CACHE MISS COALESCIDO: {} | Esperando carga en curso", lookup.resource());
+            return awaitLoad(lookup, current, stale, exchange, chain);
+        }
+
+        // Otra solicitud pudo completar la carga entre la consulta y el registro
+        CacheEntry loaded = cache.get(key);
+        if (loaded != null && !loaded.isExpired()) {
+            inFlight.remove(key, loading);
+            loading.tryEmitValue(new LoadedEntry(key, loaded));
+            return serve(loaded, exchange, "HIT", Mono.defer(() -> chain.filter(exchange)));
+        }
+
+        upstreamLoads.increment();
+        return loadAndCache(lookup, loading, stale, invalidationEpoch.get(), exchange, chain);
+    }
+
+    private Mono<Void> awaitLoad(CacheLookup lookup, Sinks.One<LoadedEntry> loading, CacheEntry stale,
+                                 ServerWebExchange exchange, GatewayFilterChain chain) {
+        // Si la carga líder no produjo una respuesta cacheable, cada solicitud sigue su camino normal
+        return loading.asMono()
+                .flatMap(loaded -> {
+                    // Si la respuesta trajo un Vary nuevo, la entrada sólo sirve a quien cae en la misma
+                    // variante; las demás solicitudes repiten la consulta con la clave ya corregida
+                    String key = CacheKeyBuilder.build(lookup.rule(), exchange.getRequest(), lookup.subject());
+                    if (!key.equals(loaded.key())) {
+                        return lookup(lookup.rule(), lookup.config(), lookup.subject(), exchange, chain)
+                                .thenReturn(true);
+                    }
+                    return loaded.entry().applyCachedResponse(exchange, "COALESCED").thenReturn(true);
+                })
+                .onErrorResume(error -> stale != null
+                        ? stale.applyCachedResponse(exchange, "STALE-IF-ERROR").thenReturn(true)
+                        : Mono.empty())
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).thenReturn(true)))
+                .then();
+    }
 
-                // No existe caché, capturar la respuesta
-                ServerHttpResponseDecorator responseDecorator = new ServerHttpResponseDecorator(exchange.getResponse()) {
-                    @Override
-                    public Mono<Void> writeWith(org.reactivestreams.Publisher<? extends DataBuffer> body) {
-                        if (getStatusCode() != null && getStatusCode().is2xxSuccessful()) {
-                            return Flux.from(body)
-                                    .collectList()
-                                    .flatMap(dataBuffers -> {
-                                        // Unir todos los buffers
-                                        byte[] allBytes = dataBuffers.stream()
-                                                .map(buffer -> {
-                                                    byte[] bytes = new byte[buffer.readableByteCount()];
-                                                    buffer.read(bytes);
-                                                    return bytes;
-                                                })
-                                                .reduce(new byte[0], (acc, bytes) -> {
-                                                    byte[] newAcc = new byte[acc.length + bytes.length];
-                                                    System.arraycopy(acc, 0, newAcc, 0, acc.length);
-                                                    System.arraycopy(bytes, 0, newAcc, acc.length, bytes.length);
-                                                    return newAcc;
-                                                });
-
-                                        // Guardar en caché
-                                        HttpHeaders headers = new HttpHeaders();
-                                        headers.add("X-Cache", "MISS");
-                                        headers.addAll(getHeaders());
-                                        cache.put(path, new CacheEntry(allBytes, headers,
-                                                TimeUnit.SECONDS.toMillis(config.getTtlSeconds())));
-
-                                        log.info("Respuesta para {} almacenada en caché, TTL: {} segundos",
-                                                path, config.getTtlSeconds());
-
-                                        // Devolver la respuesta original
-                                        DataBuffer buffer = bufferFactory.wrap(allBytes);
-                                        return super.writeWith(Mono.just(buffer));
-                                    });
-                        }
+    private Mono<Void> loadAndCache(CacheLookup lookup, Sinks.One<LoadedEntry> loading, CacheEntry stale,
+                                    long epoch, ServerWebExchange exchange, GatewayFilterChain chain) {
+        String key = lookup.key();
+        String resource = lookup.resource();
+        CompiledCacheRule rule = lookup.rule();
+        Config config = lookup.config();
+        Set<String> tags = rule.tagsFor(exchange.getRequest());
+        long startedAt = System.nanoTime();
+        // No existe caché, capturar la respuesta
+        ServerHttpResponseDecorator responseDecorator = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(org.reactivestreams.Publisher<? extends DataBuffer> body) {
+                HttpStatusCode status = getStatusCode();
+                if (status != null && status.is5xxServerError() && stale != null) {
+                    // El servicio respondió con error: descartar su cuerpo y servir la copia vencida
+                    log.warn("⚠️ Servicio respondió {} para {}, sirviendo copia vencida", status, resource);
+                    failLoad(key, loading, new IllegalStateException("Estado " + status));
+                    getHeaders().clear();
+                    return Flux.from(body)
+                            .doOnNext(DataBufferUtils::release)
+                            .then(Mono.defer(() -> stale.applyCachedResponse(
+                                    exchange.getRequest(), getDelegate(), "STALE-IF-ERROR")));
+                }
+                Long ttlMillis = rule.ttlMillisFor(status);
+                if (ttlMillis != null && !isStorable(getHeaders(), rule)) {
+                    log.debug("Respuesta de {} marcada como no almacenable, se transmite sin guardar", resource);
+                    return super.writeWith(body);
+                }
+                if (ttlMillis != null) {
+                    long declaredLength = getHeaders().getContentLength();
+                    if (declaredLength > config.getMaxCacheableBodyBytes()) {
+                        log.debug("Respuesta de {} ({} bytes) supera el límite cacheable, se transmite sin almacenar",
+                                resource, declaredLength);
                         return super.writeWith(body);
                     }
-                };
 
-                // Reemplazar la respuesta con el decorador
-                ServerWebExchange modifiedExchange = exchange.mutate()
-                        .response(responseDecorator)
-                        .build();
+                    // Copiar los encabezados antes de que la respuesta se confirme
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.addAll(getHeaders());
+                    getHeaders().set("X-Cache", "MISS");
+
+                    // Un Vary nuevo cambia la clave: la respuesta se guarda bajo la variante de esta solicitud
+                    String storeKey = rule.learnVary(headers.getVary())
+                            ? CacheKeyBuilder.build(rule, exchange.getRequest(), lookup.subject())
+                            : key;
+
+                    // Solicitudes condicionales y clientes que recibirán la variante gzip se responden
+                    // desde la entrada guardada, con el mismo ETag que tendrán los hits siguientes
+                    if (exchange.getRequest().getHeaders().containsKey(HttpHeaders.IF_NONE_MATCH)
+                            || servesGzipVariant(headers, declaredLength)) {
+                        return writeFromEntry(body, headers, status, ttlMillis, storeKey);
+                    }
+
+                    // El cuerpo fluye al cliente mientras se captura sin copias intermedias
+                    BodyCapture capture = new BodyCapture(config.getMaxCacheableBodyBytes());
+                    Flux<DataBuffer> captured = Flux.<DataBuffer>from(body)
+                            .doOnNext(capture::append)
+                            .doOnComplete(() -> store(lookup, storeKey, status, ttlMillis, headers, tags, epoch,
+                                    capture.finish(), loading))
+                            .doOnError(error -> capture.discard())
+                            .doOnCancel(capture::discard);
+                    return super.writeWith(captured);
+                }
+                return super.writeWith(body);
+            }
 
-                return chain.filter(modifiedExchange);
+            // Si el cliente acepta gzip y el cuerpo es de texto, el hit le serviría la variante gzip
+            private boolean servesGzipVariant(HttpHeaders headers, long declaredLength) {
+                int length = declaredLength >= 0 ? (int) Math.min(declaredLength, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+                return config.isGzipVariants()
+                        && GzipEncoding.accepts(exchange.getRequest())
+                        && GzipEncoding.isCompressible(headers, length, config.getGzipMinBytes());
             }
 
-            // Para solicitudes no cacheables, continuar normalmente
-            return chain.filter(exchange);
+            // Se reúne el cuerpo para conocer su ETag y su variante gzip antes de responder
+            private Mono<Void> writeFromEntry(org.reactivestreams.Publisher<? extends DataBuffer> body,
+                                              HttpHeaders headers, HttpStatusCode status, long ttlMillis,
+                                              String storeKey) {
+                BodyCapture capture = new BodyCapture(config.getMaxCacheableBodyBytes());
+                return Flux.<DataBuffer>from(body)
+                        .doOnNext(capture::append)
+                        .collectList()
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .flatMap(buffers -> {
+                            ByteBuf captured = capture.finish();
+                            if (captured == null) {
+                                return super.writeWith(Flux.fromIterable(buffers));
+                            }
+                            String etag = headers.getETag();
+                            if (etag == null && status.is2xxSuccessful()) {
+                                etag = ETags.strongETag(captured);
+                                headers.setETag(etag);
+                                getHeaders().setETag(etag);
+                            }
+                            boolean notModified = ETags.notModified(exchange.getRequest(), etag);
+                            CacheEntry entry = store(lookup, storeKey, status, ttlMillis, headers, tags, epoch,
+                                    captured, loading);
+                            if (entry != null) {
+                                // Misma representación y ETag que un hit: la compresión del servidor la deja pasar
+                                return entry.applyCachedResponse(exchange.getRequest(), getDelegate(), "MISS")
+                                        .doOnSuccess(done -> buffers.forEach(DataBufferUtils::release))
+                                        .onErrorResume(CacheEntry.ReleasedEntryException.class,
+                                                error -> super.writeWith(Flux.fromIterable(buffers)));
+                            }
+                            if (!notModified) {
+                                return super.writeWith(Flux.fromIterable(buffers));
+                            }
+                            buffers.forEach(DataBufferUtils::release);
+                            setStatusCode(HttpStatus.NOT_MODIFIED);
+                            getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                            return setComplete();
+                        })
+                        .doOnError(error -> capture.discard())
+                        .doOnCancel(capture::discard);
+            }
         };
+
+        // Reemplazar la respuesta con el decorador. El servicio responde sin comprimir: el caché guarda
+        // el cuerpo original y su variante gzip, y en un MISS el cliente que acepta gzip recibe esa variante
+        ServerWebExchange modifiedExchange = exchange.mutate()
+                .request(builder -> builder.headers(headers -> headers.remove(HttpHeaders.ACCEPT_ENCODING)))
+                .response(responseDecorator)
+                .build();
+
+        return chain.filter(modifiedExchange)
+                .onErrorResume(error -> {
+                    // Error o timeout del servicio: servir la copia vencida si aún es utilizable
+                    if (stale == null || exchange.getResponse().isCommitted()) {
+                        failLoad(key, loading, error);
+                        return Mono.error(error);
+                    }
+                    log.warn("⚠️ Error cargando {} ({}), sirviendo copia vencida", resource, error.getMessage());
+                    failLoad(key, loading, error);
+                    exchange.getResponse().getHeaders().clear();
+                    return stale.applyCachedResponse(exchange, "STALE-IF-ERROR");
+                })
+                // Antes de propagar el fin: quien espera la respuesta ya ve la carga registrada
+                .doOnTerminate(() -> cacheMetrics.recordLoad(System.nanoTime() - startedAt))
+                .doFinally(signal -> {
+                    // Respuesta no cacheable o cancelación: nadie más debe quedar esperando
+                    if (inFlight.remove(key, loading)) {
+                        loading.tryEmitEmpty();
+                    }
+                });
+    }
+
+    // Vary: * y no-store nunca se guardan; private sólo se acepta en reglas por usuario
+    private static boolean isStorable(HttpHeaders headers, CompiledCacheRule rule) {
+        if (headers.getVary().contains("*")) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return true;
+        }
+        String directives = cacheControl.toLowerCase(Locale.ROOT);
+        return !directives.contains("no-store") && (rule.isPrincipalScoped() || !directives.contains("private"));
+    }
+
+    // Devuelve la entrada guardada, o null si la respuesta no se almacenó
+    private CacheEntry store(CacheLookup lookup, String storeKey, HttpStatusCode status, long ttlMillis,
+                             HttpHeaders headers, Set<String> tags, long epoch, ByteBuf body,
+                             Sinks.One<LoadedEntry> loading) {
+        String resource = lookup.resource();
+        if (body == null) {
+            log.debug("Respuesta de {} supera el límite cacheable, no se almacena", resource);
+            return null;
+        }
+        if (invalidationEpoch.get() != epoch) {
+            // Hubo una escritura mientras se cargaba: la respuesta puede ser anterior a ella
+            log.info("Respuesta de {} descartada: el caché se invalidó durante la carga", resource);
+            body.release();
+            return null;
+        }
+        // Las respuestas negativas (por ejemplo 404) nunca se sirven vencidas
+        boolean successful = status.is2xxSuccessful();
+        Config config = lookup.config();
+        long ttl = ttlMillis;
+        if (successful && config.isAdaptiveTtl()) {
+            // El ETag se calcula aquí para compararlo con el de la versión anterior
+            if (headers.getETag() == null) {
+                headers.setETag(ETags.strongETag(body));
+            }
+            ttl = AdaptiveTtl.next(cache.peek(storeKey), headers.getETag(), ttlMillis,
+                    TimeUnit.SECONDS.toMillis(config.getMinTtlSeconds()),
+                    TimeUnit.SECONDS.toMillis(config.getMaxTtlSeconds()));
+        }
+        ByteBuf gzipBody = config.isGzipVariants()
+                && GzipEncoding.isCompressible(headers, body.readableBytes(), config.getGzipMinBytes())
+                ? GzipEncoding.compress(body) : null;
+        CacheEntry entry = new CacheEntry(status, body, gzipBody, headers, ttl,
+                successful ? TimeUnit.SECONDS.toMillis(config.getStaleWhileRevalidateSeconds()) : 0,
+                successful ? TimeUnit.SECONDS.toMillis(config.getStaleIfErrorSeconds()) : 0,
+                tags, resource);
+        cache.put(storeKey, entry);
+
+        // Liberar a las solicitudes que esperaban esta carga; cada una comprueba si es su variante
+        inFlight.remove(lookup.key(), loading);
+        loading.tryEmitValue(new LoadedEntry(storeKey, entry));
+
+        log.debug("Respuesta {} para {} almacenada en caché, TTL: {} segundos",
+                status.value(), resource, ttl / 1000);
+        return entry;
+    }
+
+    // Sirve una entrada; si fue expulsada justo antes de leerla, continúa con el camino alternativo
+    private Mono<Void> serve(CacheEntry entry, ServerWebExchange exchange, String cacheStatus, Mono<Void> fallback) {
+        return entry.applyCachedResponse(exchange, cacheStatus)
+                .onErrorResume(CacheEntry.ReleasedEntryException.class, error -> fallback);
+    }
+
+    private void failLoad(String key, Sinks.One<LoadedEntry> loading, Throwable error) {
+        if (inFlight.remove(key, loading)) {
+            loading.tryEmitError(error);
+        }
+    }
+
+    // Clave del caché (hash), recurso legible y usuario de una solicitud cacheable
+    private record CacheLookup(String key, String resource, String subject, CompiledCacheRule rule, Config config) {
+    }
+
+    // Resultado de una carga para las solicitudes coalescidas: la clave con la que se guardó y la entrada
+    private record LoadedEntry(String key, CacheEntry entry) {
     }
 
     public static class Config {
         private long ttlSeconds = 60; // Tiempo de vida por defecto: 60 segundos
+        private long staleWhileRevalidateSeconds = 0; // Servir vencido mientras se revalida
+        private long staleIfErrorSeconds = 0; // Servir vencido si el servicio falla
+        private long maxCacheableBodyBytes = 512 * 1024; // Cuerpos mayores se transmiten sin almacenar
+        // TTL adaptativo: las respuestas 2xx ajustan su TTL según cambie o no su contenido entre recargas
+        private boolean adaptiveTtl = false;
+        private long minTtlSeconds = 30;
+        private long maxTtlSeconds = 24 * 60 * 60;
+        // Variante gzip guardada junto al cuerpo para servir los hits comprimidos sin recomprimir
+        private boolean gzipVariants = true;
+        private int gzipMinBytes = 1024; // Cuerpos menores no se comprimen: el ahorro no compensa
+        // Reglas de cacheo; sin reglas se cachea GET /api/products/{id} con la etiqueta product:{id}
+        private List<CacheRule> rules = new ArrayList<>();
 
         public long getTtlSeconds() {
             return ttlSeconds;
@@ -137,34 +553,86 @@ public class ProductCachingFilterFactory extends AbstractGatewayFilterFactory<Pr
         public void setTtlSeconds(long ttlSeconds) {
             this.ttlSeconds = ttlSeconds;
         }
-    }
 
-    private class CacheEntry {
-        private final byte[] body;
-        private final HttpHeaders headers;
-        private final long expirationTime;
+        public long getStaleWhileRevalidateSeconds() {
+            return staleWhileRevalidateSeconds;
+        }
+
+        public void setStaleWhileRevalidateSeconds(long staleWhileRevalidateSeconds) {
+            this.staleWhileRevalidateSeconds = staleWhileRevalidateSeconds;
+        }
+
+        public long getStaleIfErrorSeconds() {
+            return staleIfErrorSeconds;
+        }
+
+        public void setStaleIfErrorSeconds(long staleIfErrorSeconds) {
+            this.staleIfErrorSeconds = staleIfErrorSeconds;
+        }
+
+        public long getMaxCacheableBodyBytes() {
+            return maxCacheableBodyBytes;
+        }
+
+        public void setMaxCacheableBodyBytes(long maxCacheableBodyBytes) {
+            this.maxCacheableBodyBytes = maxCacheableBodyBytes;
+        }
+
+        public boolean isAdaptiveTtl() {
+            return adaptiveTtl;
+        }
+
+        public void setAdaptiveTtl(boolean adaptiveTtl) {
+            this.adaptiveTtl = adaptiveTtl;
+        }
+
+        public long getMinTtlSeconds() {
+            return minTtlSeconds;
+        }
+
+        public void setMinTtlSeconds(long minTtlSeconds) {
+            this.minTtlSeconds = minTtlSeconds;
+        }
+
+        public long getMaxTtlSeconds() {
+            return maxTtlSeconds;
+        }
+
+        public void setMaxTtlSeconds(long maxTtlSeconds) {
+            this.maxTtlSeconds = maxTtlSeconds;
+        }
+
+        public boolean isGzipVariants() {
+            return gzipVariants;
+        }
 
-        public CacheEntry(byte[] body, HttpHeaders headers, long ttlMillis) {
-            this.body = body;
-            this.headers = new HttpHeaders();
-            this.headers.addAll(headers);
-            this.expirationTime = System.currentTimeMillis() + ttlMillis;
+        public void setGzipVariants(boolean gzipVariants) {
+            this.gzipVariants = gzipVariants;
         }
 
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expirationTime;
+        public int getGzipMinBytes() {
+            return gzipMinBytes;
         }
 
-        public Mono<Void> applyCachedResponse(ServerWebExchange exchange) {
-            ServerHttpResponse response = exchange.getResponse();
-            response.getHeaders().putAll(this.headers);
+        public void setGzipMinBytes(int gzipMinBytes) {
+            this.gzipMinBytes = gzipMinBytes;
+        }
 
-            // Agregar encabezados indicativos del caché
-            response.getHeaders().add("X-Cache", "HIT");
-            response.getHeaders().add("X-Cache-Expires", String.valueOf(expirationTime));
+        public List<CacheRule> getRules() {
+            return rules.isEmpty()
+                    ? List.of(new CacheRule("/api/products/{id}")
+                            .tags("product:{id}")
+                            .invalidatedBy("/api/products/{id}"))
+                    : rules;
+        }
+
+        public void setRules(List<CacheRule> rules) {
+            this.rules = rules;
+        }
 
-            DataBuffer buffer = bufferFactory.wrap(this.body);
-            return response.writeWith(Mono.just(buffer));
+        public Config addRule(CacheRule rule) {
+            this.rules.add(rule);
+            return this;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import com.unimagdalena.apigateway.cache.CachePrincipalResolver;
+import com.unimagdalena.apigateway.cache.CacheRefresher;
+import com.unimagdalena.apigateway.ratelimit.GcraRateLimiter;
+import com.unimagdalena.apigateway.ratelimit.RateLimitProperties;
+import com.unimagdalena.apigateway.ratelimit.RateLimiterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Limita las solicitudes por cliente y por ruta con token buckets en memoria (GCRA).
+ * Responde 429 con Retry-After al agotar la cuota e informa el estado con RateLimit-*.
+ */
+@Component
+public class RateLimitFilterFactory extends AbstractGatewayFilterFactory<RateLimitFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilterFactory.class);
+
+    private final RateLimiterRegistry registry;
+    private final RateLimitProperties properties;
+    private final CachePrincipalResolver principalResolver;
+    private final CacheCluster cacheCluster;
+    private final CacheRefresher cacheRefresher;
+
+    public RateLimitFilterFactory(RateLimiterRegistry registry, RateLimitProperties properties,
+                                  CachePrincipalResolver principalResolver, CacheCluster cacheCluster,
+                                  CacheRefresher cacheRefresher) {
+        super(Config.class);
+        this.registry = registry;
+        this.properties = properties;
+        this.principalResolver = principalResolver;
+        this.cacheCluster = cacheCluster;
+        this.cacheRefresher = cacheRefresher;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        GcraRateLimiter limiter = registry.create(config.getName(), config.getRequestsPerSecond(), config.getBurst());
+        return (exchange, chain) -> {
+            // Un reenvío firmado de otra réplica ya se cobró en la réplica que recibió al cliente, y las
+            // recargas del caché no son tráfico de ningún cliente: no deben gastar el bucket de 127.0.0.1
+            ServerHttpRequest request = exchange.getRequest();
+            if (cacheCluster.isPeerRequest(request) || cacheRefresher.isRefreshRequest(request)) {
+                return chain.filter(exchange);
+            }
+            return resolveKey(config, request)
+                    .flatMap(key -> {
+                        GcraRateLimiter.Decision decision = limiter.tryAcquire(key, System.nanoTime(), registry.divisor());
+                        ServerHttpResponse response = exchange.getResponse();
+                        HttpHeaders headers = response.getHeaders();
+                        headers.set("RateLimit-Limit", String.valueOf(decision.getLimit()));
+                        headers.set("RateLimit-Remaining", String.valueOf(decision.getRemaining()));
+                        headers.set("RateLimit-Reset", String.valueOf(decision.getResetSeconds()));
+                        if (decision.isAllowed()) {
+                            return chain.filter(exchange);
+                        }
+                        log.debug("Límite de {} alcanzado para {}", config.getName(), key);
+                        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getRetryAfterSeconds()));
+                        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                        return response.setComplete();
+                    });
+        };
+    }
+
+    private Mono<String> resolveKey(Config config, ServerHttpRequest request) {
+        // Sin sujeto ni API key válida, el cliente se identifica por su IP
+        return switch (config.getKeyType()) {
+            case IP -> Mono.just(clientIp(request));
+            case SUBJECT -> principalResolver.subject(request)
+                    .map(subject -> "sub:" + subject)
+                    .defaultIfEmpty(clientIp(request));
+            case API_KEY -> {
+                String apiKey = request.getHeaders().getFirst(config.getApiKeyHeader());
+                // Una key desconocida no abre un bucket nuevo: si no, cambiarla en cada solicitud evitaría el límite
+                yield Mono.just(apiKey != null && properties.getApiKeys().contains(apiKey)
+                        ? "key:" + apiKey : clientIp(request));
+            }
+        };
+    }
+
+    // Un reenvío entre réplicas cuenta para el cliente original, no para la réplica que lo envió
+    private String clientIp(ServerHttpRequest request) {
+        String ip = cacheCluster.clientIp(request);
+        return ip != null ? "ip:" + ip : "ip:unknown";
+    }
+
+    public enum KeyType {
+        IP, SUBJECT, API_KEY
+    }
+
+    public static class Config {
+        private String name = "default"; // Nombre del limitador (normalmente la ruta)
+        private double requestsPerSecond = 10; // Tasa sostenida por cliente
+        private int burst = 20; // Solicitudes que se aceptan de golpe con el bucket lleno
+        private KeyType keyType = KeyType.IP;
+        private String apiKeyHeader = "X-API-Key";
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public KeyType getKeyType() {
+            return keyType;
+        }
+
+        public void setKeyType(KeyType keyType) {
+            this.keyType = keyType;
+        }
+
+        public String getApiKeyHeader() {
+            return apiKeyHeader;
+        }
+
+        public void setApiKeyHeader(String apiKeyHeader) {
+            this.apiKeyHeader = apiKeyHeader;
+        }
+    }
+}
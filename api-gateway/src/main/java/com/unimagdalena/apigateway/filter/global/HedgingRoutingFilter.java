@@ -0,0 +1,347 @@
+package com.unimagdalena.apigateway.filter.global;
+
+import com.unimagdalena.apigateway.hedging.HedgePolicy;
+import com.unimagdalena.apigateway.loadbalancer.PeakEwmaLoadBalancer;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+
+/**
+ * Coberturas y reintentos de las solicitudes marcadas por HedgingFilterFactory. Va justo después
+ * del balanceador: el primer intento usa la instancia que eligió, y la cobertura o el reintento le
+ * piden otra distinta. Cada intento recorre el resto de la cadena (PooledRoutingFilter, con el pool
+ * y el timeout de la ruta) sobre una copia del intercambio; el ganador pasa su estado, sus
+ * encabezados y su conexión al intercambio real, y NettyWriteResponseFilter transmite el cuerpo
+ * sin cargarlo en memoria. La conexión del intento perdedor se cierra.
+ */
+@Component
+public class HedgingRoutingFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgingRoutingFilter.class);
+
+    public static final String HEDGE_HEADER = "X-Hedged";
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(502, 503, 504);
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> clientFactory;
+
+    public HedgingRoutingFilter(ReactiveLoadBalancer.Factory<ServiceInstance> clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        HedgePolicy policy = exchange.getAttribute(HedgePolicy.HEDGE_POLICY_ATTR);
+        Response<ServiceInstance> chosen = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (policy == null || chosen == null || !chosen.hasServer() || url == null || route == null
+                || isAlreadyRouted(exchange)) {
+            return chain.filter(exchange);
+        }
+        return new Hedge(exchange, chain, policy, route.getUri().getHost(), chosen, url).run();
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+
+    // Una solicitud con sus intentos; el primero que llega a los encabezados de respuesta gana
+    private final class Hedge {
+        private final ServerWebExchange exchange;
+        private final GatewayFilterChain chain;
+        private final HedgePolicy policy;
+        private final String serviceId;
+        private final Response<ServiceInstance> primary;
+        private final URI url;
+        private final List<ServiceInstance> tried = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+        private final AtomicReference<Throwable> primaryError = new AtomicReference<>();
+
+        private Hedge(ServerWebExchange exchange, GatewayFilterChain chain, HedgePolicy policy, String serviceId,
+                      Response<ServiceInstance> primary, URI url) {
+            this.exchange = exchange;
+            this.chain = chain;
+            this.policy = policy;
+            this.serviceId = serviceId;
+            this.primary = primary;
+            this.url = url;
+            this.tried.add(primary.getServer());
+        }
+
+        private Mono<Void> run() {
+            // El balanceador ya registró el primer intento en su ciclo de vida
+            Mono<Attempt> primaryWithRetry = send(primary, false)
+                    .flatMap(attempt -> isRetryable(attempt)
+                            ? retry(null)
+                                    .doOnNext(retried -> discard(attempt))
+                                    .defaultIfEmpty(attempt)
+                                    .onErrorReturn(attempt)
+                            : Mono.just(attempt))
+                    .onErrorResume(this::retry)
+                    .doOnError(primaryError::set)
+                    .filter(this::claim);
+
+            // Espera hasta el percentil de la ruta y, si el presupuesto lo permite, repite la solicitud en otra instancia
+            Mono<Attempt> hedged = Mono.delay(policy.hedgeDelay())
+                    .flatMap(tick -> otherInstance())
+                    .filter(target -> policy.tryHedge())
+                    .flatMap(target -> {
+                        log.debug("Cobertura de {} enviada a {}", exchange.getRequest().getPath(), target.getServer().getUri());
+                        return send(target, true);
+                    })
+                    .doOnNext(attempt -> attempt.hedged = true)
+                    .filter(this::claim);
+
+            return Mono.firstWithValue(primaryWithRetry, hedged)
+                    // Si ningún intento respondió, se propaga el error del principal (circuit breaker, fallback)
+                    .onErrorMap(NoSuchElementException.class, e -> primaryError.get() != null ? primaryError.get() : e)
+                    .flatMap(this::respond);
+        }
+
+        private Mono<Attempt> retry(Throwable cause) {
+            Mono<Attempt> giveUp = cause != null ? Mono.error(cause) : Mono.empty();
+            if (!policy.tryRetry()) {
+                return giveUp;
+            }
+            // Sin otra instancia disponible se reintenta en la misma
+            return otherInstance()
+                    .defaultIfEmpty(primary)
+                    .flatMap(target -> {
+                        log.debug("Reintentando {} en {}", exchange.getRequest().getPath(), target.getServer().getUri());
+                        return send(target, true);
+                    });
+        }
+
+        private Mono<Response<ServiceInstance>> otherInstance() {
+            ReactiveLoadBalancer<ServiceInstance> loadBalancer = clientFactory.getInstance(serviceId);
+            if (loadBalancer == null) {
+                return Mono.empty();
+            }
+            Request<RequestDataContext> request = lbRequest();
+            Mono<Response<ServiceInstance>> choice = loadBalancer instanceof PeakEwmaLoadBalancer peakEwma
+                    ? peakEwma.chooseExcluding(request, tried)
+                    : Mono.from(loadBalancer.choose(request));
+            return choice
+                    .filter(response -> response.hasServer()
+                            && tried.stream().noneMatch(instance -> sameInstance(instance, response.getServer())))
+                    .doOnNext(response -> tried.add(response.getServer()));
+        }
+
+        private Mono<Attempt> send(Response<ServiceInstance> target, boolean tracked) {
+            URI attemptUrl = target == primary ? url : LoadBalancerUriTools.reconstructURI(target.getServer(), url);
+            Attempt attempt = new Attempt(exchange, attemptUrl, target);
+            Set<LoadBalancerLifecycle> lifecycles = tracked ? lifecycles() : Set.of();
+            Request<RequestDataContext> request = lbRequest();
+            started(lifecycles, request, target);
+            long startedAt = System.nanoTime();
+            return chain.filter(attempt.exchange)
+                    .then(Mono.fromCallable(() -> {
+                        policy.recordLatency(System.nanoTime() - startedAt);
+                        completed(lifecycles, new CompletionContext<>(CompletionContext.Status.SUCCESS, request, target,
+                                new ResponseData(attempt.response, new RequestData(exchange.getRequest()))));
+                        return attempt;
+                    }))
+                    .doOnError(error -> completed(lifecycles,
+                            new CompletionContext<>(CompletionContext.Status.FAILED, error, request, target)))
+                    // El intento cancelado cuenta en la instancia con el tiempo que llevaba esperando
+                    .doOnCancel(() -> completed(lifecycles,
+                            new CompletionContext<>(CompletionContext.Status.SUCCESS, request, target)));
+        }
+
+        private boolean claim(Attempt attempt) {
+            if (winner.compareAndSet(null, attempt)) {
+                return true;
+            }
+            discard(attempt);
+            return false;
+        }
+
+        private Mono<Void> respond(Attempt attempt) {
+            ServerHttpResponse response = exchange.getResponse();
+            if (attempt.response.getStatusCode() != null) {
+                response.setStatusCode(attempt.response.getStatusCode());
+            }
+            response.getHeaders().putAll(attempt.response.getHeaders());
+            // Conexión, estado de enrutamiento y tiempos del ganador: NettyWriteResponseFilter escribe su cuerpo
+            exchange.getAttributes().putAll(attempt.attributes);
+            if (attempt.hedged) {
+                response.getHeaders().set(HEDGE_HEADER, "true");
+                policy.onHedgeWon();
+            }
+            return Mono.empty();
+        }
+
+        private Request<RequestDataContext> lbRequest() {
+            return new DefaultRequest<>(new RequestDataContext(new RequestData(exchange.getRequest())));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Set<LoadBalancerLifecycle> lifecycles() {
+            return LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                    clientFactory.getInstances(serviceId, LoadBalancerLifecycle.class),
+                    RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void started(Set<LoadBalancerLifecycle> lifecycles, Request<RequestDataContext> request,
+                                Response<ServiceInstance> target) {
+        lifecycles.forEach(lifecycle -> {
+            lifecycle.onStart(request);
+            lifecycle.onStartRequest(request, target);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void completed(Set<LoadBalancerLifecycle> lifecycles, CompletionContext<?, ?, ?> context) {
+        lifecycles.forEach(lifecycle -> lifecycle.onComplete(context));
+    }
+
+    private static boolean isRetryable(Attempt attempt) {
+        HttpStatusCode status = attempt.response.getStatusCode();
+        return status != null && RETRYABLE_STATUS_CODES.contains(status.value());
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    // Cierra la conexión de un intento que no se usará (su cuerpo nunca se lee)
+    private static void discard(Attempt attempt) {
+        if (attempt.attributes.get(CLIENT_RESPONSE_CONN_ATTR) instanceof Connection connection) {
+            connection.dispose();
+        }
+    }
+
+    /**
+     * Copia del intercambio para un intento: atributos propios (URL e instancia del intento) y una
+     * respuesta que guarda el estado y los encabezados sin tocar la del cliente hasta saber quién gana.
+     */
+    private static final class Attempt {
+        private final Map<String, Object> attributes;
+        private final AttemptResponse response;
+        private final ServerWebExchange exchange;
+        private volatile boolean hedged;
+
+        private Attempt(ServerWebExchange original, URI url, Response<ServiceInstance> target) {
+            this.attributes = new ConcurrentHashMap<>(original.getAttributes());
+            this.attributes.put(GATEWAY_REQUEST_URL_ATTR, url);
+            this.attributes.put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, target);
+            this.response = new AttemptResponse(original.getResponse());
+            // Las lecturas no llevan cuerpo: cada intento se envía sin volver a leer el de la solicitud
+            ServerHttpRequest request = new ServerHttpRequestDecorator(original.getRequest()) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return Flux.empty();
+                }
+            };
+            this.exchange = new ServerWebExchangeDecorator(original) {
+                @Override
+                public ServerHttpRequest getRequest() {
+                    return request;
+                }
+
+                @Override
+                public ServerHttpResponse getResponse() {
+                    return response;
+                }
+
+                @Override
+                public Map<String, Object> getAttributes() {
+                    return attributes;
+                }
+            };
+        }
+    }
+
+    private static final class AttemptResponse extends ServerHttpResponseDecorator {
+        private final HttpHeaders headers = new HttpHeaders();
+        private volatile HttpStatusCode status;
+
+        private AttemptResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return Mono.error(new IllegalStateException("Un intento no escribe la respuesta al cliente"));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return Mono.error(new IllegalStateException("Un intento no escribe la respuesta al cliente"));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.error(new IllegalStateException("Un intento no escribe la respuesta al cliente"));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.unimagdalena.apigateway.filter.global;
+
+import com.unimagdalena.apigateway.cache.CacheAdminAccess;
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import com.unimagdalena.apigateway.cache.CacheRefresher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Encabezados que sólo el propio gateway puede poner (reenvíos entre réplicas con la IP del
+ * cliente original, recargas del caché). Si llegan de un cliente sin la credencial correspondiente se quitan
+ * antes de cualquier otro filtro; y nunca se envían a los servicios, para no exponer los secretos.
+ */
+@Component
+public class InternalHeadersFilter implements GlobalFilter, HttpHeadersFilter, Ordered {
+
+    // Los que dan confianza a la solicitud; el marcador de recarga se compara con su token en CacheRefresher
+    private static final List<String> TRUST_HEADERS = List.of(CacheCluster.PEER_HEADER, CacheCluster.CLIENT_IP_HEADER);
+    // Nunca salen hacia un servicio, tampoco desde las ramas de una ruta compuesta
+    public static final List<String> INTERNAL_HEADERS = List.of(
+            CacheCluster.PEER_HEADER, CacheCluster.CLIENT_IP_HEADER, CacheRefresher.REFRESH_HEADER,
+            CacheAdminAccess.ADMIN_TOKEN_HEADER);
+
+    private final CacheCluster cacheCluster;
+
+    public InternalHeadersFilter(CacheCluster cacheCluster) {
+        this.cacheCluster = cacheCluster;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        // Lo habitual es que no traiga ninguno: sólo entonces se evita copiar la solicitud
+        if (!hasAny(request.getHeaders(), TRUST_HEADERS) || cacheCluster.isPeerRequest(request)) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange.mutate()
+                .request(builder -> builder.headers(headers -> TRUST_HEADERS.forEach(headers::remove)))
+                .build());
+    }
+
+    // Encabezados hacia el servicio: se quitan siempre
+    @Override
+    public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+        if (!hasAny(input, INTERNAL_HEADERS)) {
+            return input;
+        }
+        HttpHeaders filtered = new HttpHeaders();
+        input.forEach((name, values) -> {
+            if (INTERNAL_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                filtered.put(name, values);
+            }
+        });
+        return filtered;
+    }
+
+    private static boolean hasAny(HttpHeaders headers, List<String> names) {
+        for (String name : names) {
+            if (headers.containsKey(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getOrder() {
+        return -200; // Antes que TracingFilter y que cualquier filtro de ruta
+    }
+}
@@ -0,0 +1,68 @@
+package com.unimagdalena.apigateway.filter.global;
+
+import com.unimagdalena.apigateway.upstream.UpstreamPoolRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filtro de enrutamiento del gateway con un pool de conexiones por ruta. Reemplaza al
+ * NettyRoutingFilter por defecto (desactivado con spring.cloud.gateway.global-filter.netty-routing.enabled)
+ * y conserva todo su comportamiento; sólo cambia el cliente HTTP cuando la ruta tiene pool propio.
+ * Además anota en el intercambio cuándo salió la solicitud hacia el servicio y cuándo llegó su
+ * respuesta, para que los filtros midan sólo la latencia del servicio (sin fallback ni escritura al cliente).
+ */
+@Component
+public class PooledRoutingFilter extends NettyRoutingFilter {
+
+    // Instantes (System.nanoTime) del último intento hacia el servicio
+    public static final String UPSTREAM_REQUEST_SENT_ATTR = PooledRoutingFilter.class.getName() + ".requestSentAt";
+    public static final String UPSTREAM_RESPONSE_RECEIVED_ATTR = PooledRoutingFilter.class.getName() + ".responseReceivedAt";
+    private static final String EXCHANGE_CONTEXT_KEY = PooledRoutingFilter.class.getName() + ".exchange";
+
+    private final UpstreamPoolRegistry pools;
+    // Cliente de cada pool con las anotaciones de tiempo, creado una sola vez
+    private final Map<HttpClient, HttpClient> timedClients = new ConcurrentHashMap<>();
+
+    public PooledRoutingFilter(HttpClient httpClient, ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                               HttpClientProperties properties, UpstreamPoolRegistry pools) {
+        super(httpClient, headersFilters, properties);
+        this.pools = pools;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return super.filter(exchange, chain)
+                .contextWrite(context -> context.put(EXCHANGE_CONTEXT_KEY, exchange));
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        HttpClient client = pools.clientFor(route);
+        return timedClients.computeIfAbsent(client != null ? client : super.getHttpClient(route, exchange),
+                PooledRoutingFilter::withTiming);
+    }
+
+    private static HttpClient withTiming(HttpClient client) {
+        return client
+                .doOnRequest((request, connection) -> mark(request.currentContextView(), UPSTREAM_REQUEST_SENT_ATTR))
+                .doOnResponse((response, connection) -> mark(response.currentContextView(), UPSTREAM_RESPONSE_RECEIVED_ATTR));
+    }
+
+    private static void mark(ContextView context, String attribute) {
+        context.<ServerWebExchange>getOrEmpty(EXCHANGE_CONTEXT_KEY)
+                .ifPresent(exchange -> exchange.getAttributes().put(attribute, System.nanoTime()));
+    }
+}
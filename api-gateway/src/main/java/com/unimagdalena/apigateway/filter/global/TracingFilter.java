@@ -0,0 +1,129 @@
+package com.unimagdalena.apigateway.filter.global;
+
+import com.unimagdalena.apigateway.accesslog.AccessLog;
+import com.unimagdalena.apigateway.accesslog.AccessLogEvent;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Asigna a cada solicitud su CorrelationId y su RequestId en un solo paso. Reutiliza los
+ * identificadores que ya traiga la solicitud y, si faltan, genera uno ordenado por tiempo
+ * (formato UUIDv7) con ThreadLocalRandom, sin pasar por SecureRandom como UUID.randomUUID().
+ * Los encabezados de la solicitud se modifican una sola vez y los de la respuesta justo
+ * antes de confirmarla. Al terminar, la solicitud se entrega al registro de acceso asíncrono.
+ */
+@Component
+public class TracingFilter implements GlobalFilter, Ordered {
+
+    public static final String CORRELATION_ID_HEADER = "X-Correlation-Id";
+    public static final String REQUEST_ID_HEADER = "X-Request-ID";
+    // Atributos del intercambio para que otros filtros usen los mismos identificadores
+    public static final String CORRELATION_ID_ATTR = TracingFilter.class.getName() + ".correlationId";
+    public static final String REQUEST_ID_ATTR = TracingFilter.class.getName() + ".requestId";
+
+    private static final int MAX_ID_LENGTH = 128;
+
+    private final AccessLog accessLog;
+
+    public TracingFilter(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String incomingCorrelationId = validId(request.getHeaders().getFirst(CORRELATION_ID_HEADER));
+        String incomingRequestId = validId(request.getHeaders().getFirst(REQUEST_ID_HEADER));
+
+        String correlationId = incomingCorrelationId != null ? incomingCorrelationId
+                : incomingRequestId != null ? incomingRequestId : newId();
+        String requestId = incomingRequestId != null ? incomingRequestId : correlationId;
+        exchange.getAttributes().put(CORRELATION_ID_ATTR, correlationId);
+        exchange.getAttributes().put(REQUEST_ID_ATTR, requestId);
+
+        long startedAt = System.nanoTime();
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            HttpHeaders headers = response.getHeaders();
+            headers.set(CORRELATION_ID_HEADER, correlationId);
+            // Los servicios responden JSON; se conserva el tipo por defecto de la respuesta
+            if (!headers.containsKey(HttpHeaders.CONTENT_TYPE)) {
+                headers.set(HttpHeaders.CONTENT_TYPE, "application/json");
+            }
+            return Mono.empty();
+        });
+
+        // Sólo se copia la solicitud si le falta algún identificador
+        ServerWebExchange tracedExchange = exchange;
+        if (!correlationId.equals(incomingCorrelationId) || !requestId.equals(incomingRequestId)) {
+            tracedExchange = exchange.mutate()
+                    .request(request.mutate()
+                            .headers(headers -> {
+                                headers.set(CORRELATION_ID_HEADER, correlationId);
+                                headers.set(REQUEST_ID_HEADER, requestId);
+                            })
+                            .build())
+                    .build();
+        }
+
+        return chain.filter(tracedExchange)
+                .doFinally(signalType -> recordAccess(exchange, correlationId, startedAt, signalType));
+    }
+
+    private void recordAccess(ServerWebExchange exchange, String correlationId, long startedAt,
+                              SignalType signalType) {
+        long durationMicros = (System.nanoTime() - startedAt) / 1_000;
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        int status = statusCode != null ? statusCode.value() : 0;
+        boolean failed = signalType != SignalType.ON_COMPLETE;
+        // La decisión de muestreo va antes de crear el evento: las solicitudes descartadas no generan basura
+        if (!accessLog.shouldRecord(status, durationMicros, failed)) {
+            return;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        accessLog.record(new AccessLogEvent(System.currentTimeMillis(), correlationId,
+                request.getMethod().name(), request.getPath().value(), status, durationMicros,
+                exchange.getResponse().getHeaders().getFirst("X-Cache"),
+                failed ? (signalType == SignalType.CANCEL ? "cancelada" : "error") : null));
+    }
+
+    @Override
+    public int getOrder() {
+        return -100; // Antes que el resto de filtros globales
+    }
+
+    // Identificador ordenado por tiempo: 48 bits de milisegundos, versión 7 y 74 bits aleatorios
+    static String newId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificant = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long leastSignificant = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+
+    // Un identificador externo sólo se reutiliza si es corto y de caracteres visibles (evita inyección en logs)
+    private static String validId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_ID_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c <= ' ' || c >= 0x7F) {
+                return null;
+            }
+        }
+        return id;
+    }
+}
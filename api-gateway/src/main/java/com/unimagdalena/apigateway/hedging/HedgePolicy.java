@@ -0,0 +1,96 @@
+package com.unimagdalena.apigateway.hedging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+
+/**
+ * Coberturas y reintentos de una ruta: latencias observadas, presupuesto y métricas. El filtro
+ * de la ruta la deja en el intercambio y el filtro de enrutamiento la aplica a cada intento.
+ */
+public class HedgePolicy {
+
+    public static final String HEDGE_POLICY_ATTR = HedgePolicy.class.getName();
+
+    private final LatencyTracker latency;
+    private final RetryBudget budget;
+    private final Duration minHedgeDelay;
+    private final Duration maxHedgeDelay;
+    private final Counter hedges;
+    private final Counter hedgesWon;
+    private final Counter retries;
+    private final Counter budgetExhausted;
+
+    public HedgePolicy(String name, LatencyTracker latency, RetryBudget budget, Duration minHedgeDelay,
+                       Duration maxHedgeDelay, MeterRegistry meterRegistry) {
+        this.latency = latency;
+        this.budget = budget;
+        this.minHedgeDelay = minHedgeDelay;
+        this.maxHedgeDelay = maxHedgeDelay;
+        this.hedges = counter(meterRegistry, name, "gateway.hedging.hedges", "Solicitudes de cobertura enviadas");
+        this.hedgesWon = counter(meterRegistry, name, "gateway.hedging.hedges.won", "Coberturas que respondieron primero");
+        this.retries = counter(meterRegistry, name, "gateway.hedging.retries", "Reintentos tras un error o un 502/503/504");
+        this.budgetExhausted = counter(meterRegistry, name, "gateway.hedging.budget.exhausted",
+                "Reintentos o coberturas omitidos por falta de presupuesto");
+        Gauge.builder("gateway.hedging.budget.tokens", budget, RetryBudget::availableTokens)
+                .tag("name", name)
+                .description("Reintentos y coberturas disponibles")
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String meter, String description) {
+        return Counter.builder(meter)
+                .tag("name", name)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    // Sólo el tráfico original alimenta el presupuesto
+    public void onRequest() {
+        budget.deposit();
+    }
+
+    public boolean tryHedge() {
+        if (!withdraw()) {
+            return false;
+        }
+        hedges.increment();
+        return true;
+    }
+
+    public boolean tryRetry() {
+        if (!withdraw()) {
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    public void onHedgeWon() {
+        hedgesWon.increment();
+    }
+
+    public void recordLatency(long nanos) {
+        latency.record(nanos / 1_000);
+    }
+
+    // Sin muestras suficientes se usa el máximo: no se cubre a ciegas
+    public Duration hedgeDelay() {
+        long micros = latency.percentileMicros();
+        Duration delay = micros < 0 ? maxHedgeDelay : Duration.ofNanos(micros * 1_000);
+        if (delay.compareTo(minHedgeDelay) < 0) {
+            return minHedgeDelay;
+        }
+        return delay.compareTo(maxHedgeDelay) > 0 ? maxHedgeDelay : delay;
+    }
+
+    private boolean withdraw() {
+        if (budget.tryWithdraw()) {
+            return true;
+        }
+        budgetExhausted.increment();
+        return false;
+    }
+}
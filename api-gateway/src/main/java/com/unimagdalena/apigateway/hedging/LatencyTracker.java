@@ -0,0 +1,81 @@
+package com.unimagdalena.apigateway.hedging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma logarítmico de latencias (cuatro buckets por potencia de dos) para estimar un
+ * percentil sin guardar muestras. Registrar es un incremento atómico; el percentil se
+ * recalcula cada cierto número de muestras y las cuentas se reducen a la mitad periódicamente
+ * para seguir los cambios recientes del servicio.
+ */
+public class LatencyTracker {
+
+    private static final int BUCKETS = 4 * 40;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final double percentile;
+    private final int minSamples;
+    private final long decayAfter;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long percentileMicros = -1;
+
+    public LatencyTracker(double percentile, int minSamples, long decayAfter) {
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.decayAfter = decayAfter;
+    }
+
+    public void record(long micros) {
+        counts.incrementAndGet(bucketOf(Math.max(1, micros)));
+        long total = samples.incrementAndGet();
+        if (total % RECOMPUTE_EVERY == 0) {
+            recompute(total);
+        }
+    }
+
+    // Percentil estimado en microsegundos, o -1 mientras no haya suficientes muestras
+    public long percentileMicros() {
+        return percentileMicros;
+    }
+
+    private void recompute(long total) {
+        long[] snapshot = new long[BUCKETS];
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            sum += snapshot[i];
+        }
+        if (sum >= minSamples) {
+            long threshold = (long) Math.ceil(sum * percentile);
+            long accumulated = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                accumulated += snapshot[i];
+                if (accumulated >= threshold) {
+                    percentileMicros = upperBound(i);
+                    break;
+                }
+            }
+        }
+        if (total >= decayAfter && samples.compareAndSet(total, total / 2)) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long current = counts.get(i);
+                counts.addAndGet(i, -(current / 2));
+            }
+        }
+    }
+
+    static int bucketOf(long micros) {
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = exponent >= 2 ? (int) ((micros >> (exponent - 2)) & 3) : 0;
+        return Math.min(BUCKETS - 1, exponent * 4 + sub);
+    }
+
+    static long upperBound(int bucket) {
+        int exponent = bucket / 4;
+        int sub = bucket % 4;
+        long base = 1L << exponent;
+        return base + ((sub + 1) * base >> 2);
+    }
+}
@@ -0,0 +1,49 @@
+package com.unimagdalena.apigateway.hedging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Presupuesto de reintentos: cada solicitud original deposita una fracción de token y cada
+ * reintento o solicitud de cobertura (hedge) retira uno entero. Si el servicio falla en masa,
+ * el saldo se agota y el tráfico extra queda limitado a ese porcentaje en vez de multiplicarse.
+ */
+public class RetryBudget {
+
+    private static final long TOKEN = 1_000;
+
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double percent, int reserveTokens) {
+        this.depositPerRequest = Math.round(percent * TOKEN / 100.0);
+        this.maxBalance = Math.max(1, reserveTokens) * TOKEN;
+        // El saldo inicial permite reintentar con poco tráfico
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + depositPerRequest)));
+    }
+
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    public double availableTokens() {
+        return balance.get() / (double) TOKEN;
+    }
+}
@@ -0,0 +1,42 @@
+package com.unimagdalena.apigateway.loadbalancer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public class LoadBalancerProperties {
+
+    // Tiempo en el que el peso de una latencia pasada cae a 1/e
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    // Latencia supuesta de una instancia sin muestras (recién registrada)
+    private Duration initialLatency = Duration.ofMillis(50);
+
+    // Latencia que se registra cuando la solicitud falla: aleja el tráfico de la instancia
+    private Duration failurePenalty = Duration.ofSeconds(2);
+
+    public Duration getDecayTime() {
+        return decayTime;
+    }
+
+    public void setDecayTime(Duration decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    public Duration getInitialLatency() {
+        return initialLatency;
+    }
+
+    public void setInitialLatency(Duration initialLatency) {
+        this.initialLatency = initialLatency;
+    }
+
+    public Duration getFailurePenalty() {
+        return failurePenalty;
+    }
+
+    public void setFailurePenalty(Duration failurePenalty) {
+        this.failurePenalty = failurePenalty;
+    }
+}
@@ -0,0 +1,93 @@
+package com.unimagdalena.apigateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Balanceador de "dos opciones aleatorias": toma dos instancias al azar y envía la solicitud a
+ * la de menor costo (latencia EWMA con pico por solicitudes en curso). Evita la instancia lenta
+ * o en pausa sin tener que comparar todas, y sin la sincronización que pide elegir siempre la mejor.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final int RETAIN_EVERY = 1024;
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final InstanceLoadTracker tracker;
+    private final AtomicInteger choices = new AtomicInteger();
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, String serviceId,
+                                InstanceLoadTracker tracker) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    /**
+     * Elige entre las instancias que no están en {@code excluded}, por ejemplo para enviar una
+     * cobertura o un reintento a una instancia distinta de la que ya recibió la solicitud.
+     */
+    public Mono<Response<ServiceInstance>> chooseExcluding(Request request, Collection<ServiceInstance> excluded) {
+        Set<String> excludedKeys = new HashSet<>();
+        for (ServiceInstance instance : excluded) {
+            excludedKeys.add(InstanceLoadTracker.keyOf(instance));
+        }
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next()
+                .map(instances -> pick(instances.stream()
+                        .filter(instance -> !excludedKeys.contains(InstanceLoadTracker.keyOf(instance)))
+                        .toList()));
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (choices.incrementAndGet() % RETAIN_EVERY == 0) {
+            tracker.retain(serviceId, instances);
+        }
+        return pick(instances);
+    }
+
+    // Sin retain: la lista puede venir filtrada y no debe olvidar las instancias excluidas
+    private Response<ServiceInstance> pick(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        long now = System.nanoTime();
+        return new DefaultResponse(tracker.loadOf(a).cost(now) <= tracker.loadOf(b).cost(now) ? a : b);
+    }
+}
@@ -0,0 +1,155 @@
+package com.unimagdalena.apigateway.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket por clave implementado como GCRA (Generic Cell Rate Algorithm). Cada clave
+ * guarda un único long, el instante teórico en que el bucket vuelve a estar lleno, y se
+ * actualiza con CAS: no hay locks ni hilos de recarga. Un bucket cuyo instante ya pasó está
+ * lleno y puede eliminarse sin cambiar el comportamiento. Con la tabla llena se eliminan primero
+ * los buckets inactivos y después los menos usados (los de instante más cercano), nunca se
+ * agrupa a los clientes nuevos en un bucket común.
+ */
+public class GcraRateLimiter {
+
+    // Fracción de la tabla que libera cada expulsión, para no recorrerla en cada cliente nuevo
+    private static final double EVICTION_BATCH = 0.1;
+
+    private final String name;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public GcraRateLimiter(String name, double requestsPerSecond, int burst, int maxKeys) {
+        if (requestsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("La tasa y la ráfaga del limitador deben ser positivas");
+        }
+        this.name = name;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Intenta consumir un token de la clave. El divisor reparte la cuota entre las réplicas del
+     * gateway (1 cuando cada réplica aplica el límite completo).
+     */
+    public Decision tryAcquire(String key, long nowNanos, int divisor) {
+        int effectiveBurst = Math.max(1, burst / divisor);
+        long emissionInterval = (long) (1_000_000_000L * divisor / requestsPerSecond);
+        long tolerance = emissionInterval * effectiveBurst;
+
+        AtomicLong bucket = bucketFor(key, nowNanos, tolerance);
+        while (true) {
+            long current = bucket.get();
+            long theoretical = Math.max(current, nowNanos);
+            long next = theoretical + emissionInterval;
+            long backlog = next - nowNanos;
+            if (backlog > tolerance) {
+                long retryAfter = backlog - tolerance;
+                return new Decision(false, effectiveBurst, 0, theoretical - nowNanos, retryAfter);
+            }
+            if (bucket.compareAndSet(current, next)) {
+                int remaining = (int) ((tolerance - backlog) / emissionInterval);
+                return new Decision(true, effectiveBurst, remaining, backlog, 0);
+            }
+        }
+    }
+
+    // Elimina los buckets llenos; devuelve cuántos se borraron
+    public int evictIdle(long nowNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() <= nowNanos);
+        return before - buckets.size();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private AtomicLong bucketFor(String key, long nowNanos, long tolerance) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        // Memoria acotada; si otro hilo ya está liberando espacio, la tabla se excede un momento
+        if (buckets.size() >= maxKeys && evicting.compareAndSet(false, true)) {
+            try {
+                evictCoolest(nowNanos, tolerance);
+            } finally {
+                evicting.set(false);
+            }
+        }
+        return buckets.computeIfAbsent(key, ignored -> new AtomicLong(nowNanos));
+    }
+
+    /**
+     * Libera un lote de la tabla empezando por los buckets inactivos y siguiendo por los que
+     * tienen menos ráfaga consumida. Olvidar uno de éstos sólo le devuelve a su cliente la parte
+     * de la ráfaga que ya había usado, así que un barrido de muchas IPs no castiga a los demás.
+     */
+    private void evictCoolest(long nowNanos, long tolerance) {
+        int target = Math.max(1, (int) (maxKeys * EVICTION_BATCH));
+        int before = buckets.size();
+        for (long slack : new long[]{0, tolerance / 4, tolerance / 2, tolerance}) {
+            long threshold = nowNanos + slack;
+            buckets.values().removeIf(bucket -> bucket.get() <= threshold);
+            if (before - buckets.size() >= target) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Resultado de una solicitud al limitador, con los valores para los encabezados RateLimit-*.
+     */
+    public static class Decision {
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+        private final long resetNanos;
+        private final long retryAfterNanos;
+
+        Decision(boolean allowed, int limit, int remaining, long resetNanos, long retryAfterNanos) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetNanos = resetNanos;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        // Segundos hasta que el bucket vuelve a estar lleno
+        public long getResetSeconds() {
+            return ceilSeconds(resetNanos);
+        }
+
+        public long getRetryAfterSeconds() {
+            return ceilSeconds(retryAfterNanos);
+        }
+
+        private static long ceilSeconds(long nanos) {
+            return (nanos + 999_999_999L) / 1_000_000_000L;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.unimagdalena.apigateway.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    // Frecuencia con la que se eliminan los buckets inactivos
+    private Duration sweepInterval = Duration.ofSeconds(30);
+
+    // Máximo de claves por ruta; al superarlo se expulsan los buckets inactivos y los menos usados
+    private int maxKeysPerRoute = 100_000;
+
+    // Reparte cada cuota entre las réplicas del anillo del caché compartido (sin almacenamiento externo).
+    // Es una aproximación: cada réplica aplica 1/n de la cuota, lo que sólo equivale al límite
+    // configurado si el balanceador reparte a cada cliente por igual. Con afinidad de sesión un
+    // cliente recibe 1/n de su cuota; con un reparto desigual, algo más que la cuota total.
+    private boolean clusterEnabled = false;
+
+    // API keys emitidas; con KeyType.API_KEY sólo estas tienen bucket propio, cualquier otra cuenta por IP
+    private Set<String> apiKeys = new HashSet<>();
+
+    public Duration getSweepInterval() {
+        return sweepInterval;
+    }
+
+    public void setSweepInterval(Duration sweepInterval) {
+        this.sweepInterval = sweepInterval;
+    }
+
+    public int getMaxKeysPerRoute() {
+        return maxKeysPerRoute;
+    }
+
+    public void setMaxKeysPerRoute(int maxKeysPerRoute) {
+        this.maxKeysPerRoute = maxKeysPerRoute;
+    }
+
+    public boolean isClusterEnabled() {
+        return clusterEnabled;
+    }
+
+    public void setClusterEnabled(boolean clusterEnabled) {
+        this.clusterEnabled = clusterEnabled;
+    }
+
+    public Set<String> getApiKeys() {
+        return apiKeys;
+    }
+
+    public void setApiKeys(Set<String> apiKeys) {
+        this.apiKeys = apiKeys;
+    }
+}
@@ -0,0 +1,84 @@
+package com.unimagdalena.apigateway.ratelimit;
+
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Limitadores creados por las rutas. Barre periódicamente los buckets inactivos y, en modo
+ * clúster, reparte las cuotas entre las réplicas que conoce el anillo del caché compartido.
+ * El nombre del bean evita el choque con el registro de Resilience4j.
+ */
+@Component("gatewayRateLimiterRegistry")
+public class RateLimiterRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiterRegistry.class);
+
+    private final RateLimitProperties properties;
+    private final CacheCluster cacheCluster;
+    private final List<GcraRateLimiter> limiters = new CopyOnWriteArrayList<>();
+    private Scheduler scheduler;
+    private Disposable task;
+
+    public RateLimiterRegistry(RateLimitProperties properties, CacheCluster cacheCluster) {
+        this.properties = properties;
+        this.cacheCluster = cacheCluster;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Schedulers.newSingle("rate-limit-sweeper", true);
+        task = Flux.interval(properties.getSweepInterval(), properties.getSweepInterval(), scheduler)
+                .subscribe(tick -> sweep());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (task != null) {
+            task.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    public GcraRateLimiter create(String name, double requestsPerSecond, int burst) {
+        GcraRateLimiter limiter = new GcraRateLimiter(name, requestsPerSecond, burst,
+                properties.getMaxKeysPerRoute());
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    /**
+     * Parte de la cuota que aplica esta réplica: 1/n con n réplicas en el anillo. Es aproximado
+     * (supone que cada cliente se reparte por igual entre réplicas). Los reenvíos firmados del
+     * caché compartido ya se cobraron en la réplica que recibió al cliente y no se cobran otra vez.
+     */
+    public int divisor() {
+        if (!properties.isClusterEnabled() || !cacheCluster.isEnabled()) {
+            return 1;
+        }
+        return Math.max(1, cacheCluster.memberCount());
+    }
+
+    void sweep() {
+        long now = System.nanoTime();
+        for (GcraRateLimiter limiter : limiters) {
+            int removed = limiter.evictIdle(now);
+            if (removed > 0) {
+                log.debug("Limitador {}: {} buckets inactivos eliminados, {} activos",
+                        limiter.getName(), removed, limiter.size());
+            }
+        }
+    }
+}
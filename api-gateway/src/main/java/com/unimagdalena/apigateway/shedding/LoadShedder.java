@@ -0,0 +1,226 @@
+package com.unimagdalena.apigateway.shedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admisión por prioridad de las solicitudes que van a los servicios. Cada clase puede ocupar
+ * sólo una fracción de la capacidad del gateway, así que las clases bajas dejan de entrar antes
+ * y el espacio restante queda para la compra. Lo que no entra espera en una cola acotada de su
+ * clase; al liberarse un lugar se atiende primero la clase más alta. Si la cola está llena o la
+ * espera vence, la solicitud se descarta.
+ * Admitir y liberar sin cola es un contador atómico; el bloqueo sólo se toma cuando hay
+ * solicitudes esperando, para no serializar los event loops justo cuando el gateway se satura.
+ */
+@Component
+public class LoadShedder {
+
+    // Clase de prioridad asignada a la solicitud, para los límites que van después en la ruta
+    public static final String PRIORITY_ATTR = LoadShedder.class.getName() + ".priority";
+
+    private final LoadSheddingProperties properties;
+    private final Map<PriorityClass, ArrayDeque<Waiter>> queues = new EnumMap<>(PriorityClass.class);
+    private final Map<PriorityClass, Counter> admitted = new EnumMap<>(PriorityClass.class);
+    private final Map<PriorityClass, Counter> queued = new EnumMap<>(PriorityClass.class);
+    private final Map<PriorityClass, Counter> shed = new EnumMap<>(PriorityClass.class);
+    private final Map<PriorityClass, Timer> waits = new EnumMap<>(PriorityClass.class);
+    // Tamaño de cada cola, legible sin bloqueo; sólo cambia dentro del bloqueo
+    private final Map<PriorityClass, AtomicInteger> waiting = new EnumMap<>(PriorityClass.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public LoadShedder(LoadSheddingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (PriorityClass priority : PriorityClass.values()) {
+            ArrayDeque<Waiter> queue = new ArrayDeque<>();
+            queues.put(priority, queue);
+            waiting.put(priority, new AtomicInteger());
+            String tag = priority.name().toLowerCase();
+            admitted.put(priority, requests(meterRegistry, tag, "admitted"));
+            queued.put(priority, requests(meterRegistry, tag, "queued"));
+            shed.put(priority, requests(meterRegistry, tag, "shed"));
+            waits.put(priority, Timer.builder("gateway.shedding.wait")
+                    .tag("priority", tag)
+                    .description("Tiempo en cola antes de entrar")
+                    .register(meterRegistry));
+            Gauge.builder("gateway.shedding.queue", this, shedder -> shedder.queueSize(priority))
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("gateway.shedding.in.flight", this, LoadShedder::inFlight)
+                .description("Solicitudes admitidas en curso")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String priority, String outcome) {
+        return Counter.builder("gateway.shedding.requests")
+                .tag("priority", priority)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Emite true cuando la solicitud puede continuar (y debe llamar a {@link #release}) o false
+     * si se descartó.
+     */
+    public Mono<Boolean> acquire(PriorityClass priority) {
+        if (!hasQueuedFrom(priority) && tryOccupy(priority)) {
+            admitted.get(priority).increment();
+            return Mono.just(true);
+        }
+        Waiter waiter;
+        List<Waiter> ready;
+        synchronized (this) {
+            ArrayDeque<Waiter> queue = queues.get(priority);
+            if (queue.size() >= properties.limitsOf(priority).getQueueSize()) {
+                shed.get(priority).increment();
+                return Mono.just(false);
+            }
+            waiter = new Waiter(priority, System.nanoTime());
+            queue.addLast(waiter);
+            waiting.get(priority).incrementAndGet();
+            queued.get(priority).increment();
+            // Un lugar liberado entre la comprobación y el encolado no debe quedar sin usar
+            ready = dispatch();
+        }
+        ready.forEach(admittedWaiter -> admittedWaiter.sink.tryEmitValue(true));
+        return waiter.sink.asMono()
+                .timeout(properties.limitsOf(priority).getMaxWait(), Mono.fromSupplier(() -> abandon(waiter)))
+                .doOnCancel(() -> {
+                    if (abandon(waiter)) {
+                        release();
+                    }
+                });
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+        if (totalWaiting() == 0) {
+            return;
+        }
+        List<Waiter> ready;
+        synchronized (this) {
+            ready = dispatch();
+        }
+        // Fuera del bloqueo: cada solicitud admitida continúa su cadena de filtros en este hilo
+        ready.forEach(waiter -> waiter.sink.tryEmitValue(true));
+    }
+
+    // Ocupa un lugar si la clase aún está por debajo de su fracción de la capacidad
+    private boolean tryOccupy(PriorityClass priority) {
+        int threshold = threshold(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= threshold) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Atiende las colas de la clase más alta a la más baja mientras haya lugar para cada una
+    private List<Waiter> dispatch() {
+        List<Waiter> ready = List.of();
+        for (PriorityClass priority : PriorityClass.values()) {
+            ArrayDeque<Waiter> queue = queues.get(priority);
+            while (!queue.isEmpty() && tryOccupy(priority)) {
+                Waiter waiter = queue.pollFirst();
+                waiting.get(priority).decrementAndGet();
+                waiter.done = true;
+                admitted.get(priority).increment();
+                waits.get(priority).record(System.nanoTime() - waiter.queuedAt, TimeUnit.NANOSECONDS);
+                if (ready.isEmpty()) {
+                    ready = new ArrayList<>();
+                }
+                ready.add(waiter);
+            }
+            if (!queue.isEmpty()) {
+                // Las clases inferiores no pasan delante de una superior que sigue esperando
+                break;
+            }
+        }
+        return ready;
+    }
+
+    // Quita la solicitud de la cola; devuelve true si ya había sido admitida (el lugar es suyo)
+    private synchronized boolean abandon(Waiter waiter) {
+        if (waiter.done) {
+            return true;
+        }
+        waiter.done = true;
+        if (queues.get(waiter.priority).remove(waiter)) {
+            waiting.get(waiter.priority).decrementAndGet();
+        }
+        shed.get(waiter.priority).increment();
+        return false;
+    }
+
+    private boolean hasQueuedFrom(PriorityClass priority) {
+        for (PriorityClass other : PriorityClass.values()) {
+            if (waiting.get(other).get() > 0) {
+                return true;
+            }
+            if (other == priority) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private int totalWaiting() {
+        int total = 0;
+        for (AtomicInteger count : waiting.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * Fracción de un límite que puede ocupar la solicitud según su clase. El bulkhead y el límite
+     * adaptativo la aplican a su propio techo, así que bajo saturación rechazan primero la
+     * navegación y no la compra. Sin clase asignada se permite el límite completo.
+     */
+    public double admitFraction(ServerWebExchange exchange) {
+        PriorityClass priority = exchange.getAttribute(PRIORITY_ATTR);
+        return priority != null ? properties.limitsOf(priority).getAdmitFraction() : 1.0;
+    }
+
+    private int threshold(PriorityClass priority) {
+        return (int) Math.ceil(properties.getMaxConcurrent() * properties.limitsOf(priority).getAdmitFraction());
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int queueSize(PriorityClass priority) {
+        return waiting.get(priority).get();
+    }
+
+    private static final class Waiter {
+        private final PriorityClass priority;
+        private final long queuedAt;
+        private final Sinks.One<Boolean> sink = Sinks.one();
+        private boolean done;
+
+        private Waiter(PriorityClass priority, long queuedAt) {
+            this.priority = priority;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
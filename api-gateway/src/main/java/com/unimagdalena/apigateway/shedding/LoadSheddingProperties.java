@@ -0,0 +1,86 @@
+package com.unimagdalena.apigateway.shedding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "gateway.load-shedding")
+public class LoadSheddingProperties {
+
+    // Solicitudes hacia los servicios en curso en todo el gateway
+    private int maxConcurrent = 800;
+
+    // Límites de cada clase; las no configuradas usan los valores por defecto
+    private Map<PriorityClass, ClassLimits> classes = new EnumMap<>(PriorityClass.class);
+
+    public LoadSheddingProperties() {
+        classes.put(PriorityClass.CRITICAL, new ClassLimits(1.0, 200, Duration.ofSeconds(2)));
+        classes.put(PriorityClass.HIGH, new ClassLimits(0.9, 100, Duration.ofSeconds(1)));
+        classes.put(PriorityClass.NORMAL, new ClassLimits(0.75, 50, Duration.ofMillis(500)));
+        classes.put(PriorityClass.LOW, new ClassLimits(0.5, 20, Duration.ofMillis(200)));
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public Map<PriorityClass, ClassLimits> getClasses() {
+        return classes;
+    }
+
+    public void setClasses(Map<PriorityClass, ClassLimits> classes) {
+        this.classes = classes;
+    }
+
+    public ClassLimits limitsOf(PriorityClass priority) {
+        return classes.getOrDefault(priority, new ClassLimits());
+    }
+
+    public static class ClassLimits {
+        // Fracción de maxConcurrent que la clase puede ocupar: lo que queda por encima se reserva a las superiores
+        private double admitFraction = 1.0;
+        // Solicitudes de la clase que pueden esperar un lugar; las demás se rechazan
+        private int queueSize = 50;
+        // Espera máxima en la cola antes de rechazar
+        private Duration maxWait = Duration.ofMillis(500);
+
+        public ClassLimits() {
+        }
+
+        public ClassLimits(double admitFraction, int queueSize, Duration maxWait) {
+            this.admitFraction = admitFraction;
+            this.queueSize = queueSize;
+            this.maxWait = maxWait;
+        }
+
+        public double getAdmitFraction() {
+            return admitFraction;
+        }
+
+        public void setAdmitFraction(double admitFraction) {
+            this.admitFraction = admitFraction;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+}
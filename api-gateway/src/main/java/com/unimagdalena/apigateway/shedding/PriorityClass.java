@@ -0,0 +1,9 @@
+package com.unimagdalena.apigateway.shedding;
+
+// Clases de prioridad, de la más importante a la que se descarta primero
+public enum PriorityClass {
+    CRITICAL, // Compra y pago
+    HIGH, // Lecturas de usuarios autenticados
+    NORMAL,
+    LOW // Navegación anónima del catálogo
+}
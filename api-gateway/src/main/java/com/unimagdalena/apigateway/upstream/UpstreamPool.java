@@ -0,0 +1,93 @@
+package com.unimagdalena.apigateway.upstream;
+
+import java.time.Duration;
+
+/**
+ * Pool de conexiones propio de una ruta. Cada servicio tiene sus conexiones, su espera máxima
+ * por una conexión libre y su timeout de respuesta: un servicio lento agota su pool sin
+ * quitarle conexiones a los demás.
+ */
+public class UpstreamPool {
+
+    private String name = "default"; // Nombre del pool (normalmente el servicio)
+    private int maxConnections = 200; // Con h2c cada conexión lleva varias solicitudes a la vez
+    private int pendingAcquireMaxCount = 0; // Solicitudes que pueden esperar conexión (0: 2 × maxConnections)
+    private Duration acquireTimeout = Duration.ofSeconds(1); // Espera máxima por una conexión libre
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(5);
+    private Duration maxIdleTime = Duration.ofSeconds(15);
+    private Duration maxLifeTime = Duration.ofMinutes(5); // Renueva conexiones para repartirlas entre instancias nuevas
+    private boolean h2c = true; // HTTP/2 sin TLS, con upgrade desde HTTP/1.1 si el servicio no lo anuncia
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getPendingAcquireMaxCount() {
+        return pendingAcquireMaxCount;
+    }
+
+    public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+    }
+
+    public Duration getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public void setResponseTimeout(Duration responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public Duration getMaxLifeTime() {
+        return maxLifeTime;
+    }
+
+    public void setMaxLifeTime(Duration maxLifeTime) {
+        this.maxLifeTime = maxLifeTime;
+    }
+
+    public boolean isH2c() {
+        return h2c;
+    }
+
+    public void setH2c(boolean h2c) {
+        this.h2c = h2c;
+    }
+}
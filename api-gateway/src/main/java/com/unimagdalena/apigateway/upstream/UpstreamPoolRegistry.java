@@ -0,0 +1,73 @@
+package com.unimagdalena.apigateway.upstream;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Pools de conexiones por ruta. {@link #define} crea el pool y devuelve los metadatos que la
+ * ruta debe llevar; el filtro de enrutamiento usa entonces el cliente HTTP de ese pool en lugar
+ * del global de spring.cloud.gateway.httpclient.
+ */
+@Component
+public class UpstreamPoolRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamPoolRegistry.class);
+
+    // Metadato de la ruta con el nombre de su pool
+    public static final String POOL_ATTR = "upstream-pool";
+
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+
+    public Map<String, Object> define(Consumer<UpstreamPool> customizer) {
+        UpstreamPool pool = new UpstreamPool();
+        customizer.accept(pool);
+        ConnectionProvider provider = ConnectionProvider.builder("gateway-" + pool.getName())
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount() > 0
+                        ? pool.getPendingAcquireMaxCount() : 2 * pool.getMaxConnections())
+                .pendingAcquireTimeout(pool.getAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getMaxIdleTime())
+                .build();
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .protocol(pool.isH2c()
+                        ? new HttpProtocol[]{HttpProtocol.H2C, HttpProtocol.HTTP11}
+                        : new HttpProtocol[]{HttpProtocol.HTTP11});
+        ConnectionProvider previous = providers.put(pool.getName(), provider);
+        if (previous != null) {
+            previous.disposeLater().subscribe();
+        }
+        clients.put(pool.getName(), client);
+        log.info("Pool {}: {} conexiones, h2c={}, respuesta {}", pool.getName(), pool.getMaxConnections(),
+                pool.isH2c(), pool.getResponseTimeout());
+        // El timeout de respuesta por ruta lo aplica el propio filtro de enrutamiento del gateway
+        return Map.of(POOL_ATTR, pool.getName(),
+                RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR, pool.getResponseTimeout().toMillis());
+    }
+
+    // Cliente del pool de la ruta, o null si la ruta usa el pool global
+    public HttpClient clientFor(Route route) {
+        Object name = route.getMetadata().get(POOL_ATTR);
+        return name != null ? clients.get(name.toString()) : null;
+    }
+
+    @PreDestroy
+    public void stop() {
+        providers.values().forEach(provider -> provider.disposeLater().subscribe());
+    }
+}
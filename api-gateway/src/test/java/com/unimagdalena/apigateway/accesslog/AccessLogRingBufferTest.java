@@ -0,0 +1,62 @@
+package com.unimagdalena.apigateway.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccessLogRingBufferTest {
+
+    private static AccessLogEvent event(int status) {
+        return new AccessLogEvent(0, "id", "GET", "/api/products/1", status, 1_000, null, null);
+    }
+
+    @Test
+    void shouldRejectEventsWhenFullAndAcceptAgainAfterDrain() {
+        // given
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            buffer.offer(event(200 + i));
+        }
+
+        // when
+        boolean acceptedWhileFull = buffer.offer(event(500));
+        List<Integer> drained = new ArrayList<>();
+        buffer.drain(e -> drained.add(e.getStatus()), 10);
+        boolean acceptedAfterDrain = buffer.offer(event(500));
+
+        // then
+        assertThat(acceptedWhileFull).isFalse();
+        assertThat(drained).containsExactly(200, 201, 202, 203);
+        assertThat(acceptedAfterDrain).isTrue();
+    }
+
+    @Test
+    void shouldNotLoseEventsFromConcurrentProducers() throws InterruptedException {
+        // given
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(16_384);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+
+        // when
+        for (int t = 0; t < 4; t++) {
+            producers.execute(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    buffer.offer(event(200));
+                }
+                done.countDown();
+            });
+        }
+        done.await(10, TimeUnit.SECONDS);
+        producers.shutdown();
+
+        // then
+        assertThat(buffer.drain(e -> { }, Integer.MAX_VALUE)).isEqualTo(8_000);
+    }
+}
@@ -0,0 +1,37 @@
+package com.unimagdalena.apigateway.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccessLogTest {
+
+    @Test
+    void shouldAlwaysRecordErrorsAndSlowRequestsButSampleSuccesses() {
+        // given
+        AccessLogProperties properties = new AccessLogProperties();
+        properties.setSampleRate(0.0);
+        AccessLog accessLog = new AccessLog(properties);
+
+        // when & then
+        assertThat(accessLog.shouldRecord(200, 5_000, false)).isFalse();
+        assertThat(accessLog.shouldRecord(503, 5_000, false)).isTrue();
+        assertThat(accessLog.shouldRecord(200, 5_000, true)).isTrue();
+        assertThat(accessLog.shouldRecord(200, 2_000_000, false)).isTrue();
+    }
+
+    @Test
+    void shouldWriteQueuedEventsOnFlush() {
+        // given
+        AccessLog accessLog = new AccessLog(new AccessLogProperties());
+        accessLog.record(new AccessLogEvent(0, "id-1", "GET", "/api/products/1", 200, 1_500, "HIT", null));
+        accessLog.record(new AccessLogEvent(0, "id-2", "GET", "/api/products/2", 500, 9_000, null, "error"));
+
+        // when
+        accessLog.flush();
+
+        // then
+        assertThat(accessLog.writtenCount()).isEqualTo(2);
+        assertThat(accessLog.droppedCount()).isZero();
+    }
+}
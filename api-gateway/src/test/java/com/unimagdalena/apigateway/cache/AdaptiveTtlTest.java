@@ -0,0 +1,57 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveTtlTest {
+
+    private static final long MIN = 60_000;
+    private static final long MAX = 3_600_000;
+
+    private static CacheEntry entry(String body, long ttlMillis) {
+        return new CacheEntry(HttpStatus.OK, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8), new HttpHeaders(),
+                ttlMillis, 0, 0, Set.of(), "GET /api/products/1");
+    }
+
+    @Test
+    void shouldStartFromRuleTtlWithoutHistory() {
+        // when
+        long ttl = AdaptiveTtl.next(null, "\"a\"", 300_000, MIN, MAX);
+
+        // then
+        assertThat(ttl).isEqualTo(300_000);
+    }
+
+    @Test
+    void shouldStretchTtlWhileContentIsUnchanged() {
+        // given
+        CacheEntry previous = entry("{\"price\":10}", 300_000);
+        String sameETag = entry("{\"price\":10}", 1).getETag();
+
+        // when
+        long ttl = AdaptiveTtl.next(previous, sameETag, 300_000, MIN, MAX);
+
+        // then
+        assertThat(ttl).isEqualTo(600_000);
+    }
+
+    @Test
+    void shouldShrinkTtlWhenContentChangesWithinBounds() {
+        // given
+        CacheEntry previous = entry("{\"price\":10}", 90_000);
+        String newETag = entry("{\"price\":12}", 1).getETag();
+
+        // when
+        long ttl = AdaptiveTtl.next(previous, newETag, 300_000, MIN, MAX);
+
+        // then
+        assertThat(ttl).isEqualTo(MIN);
+    }
+}
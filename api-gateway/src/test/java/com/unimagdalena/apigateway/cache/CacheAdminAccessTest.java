@@ -0,0 +1,57 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheAdminAccessTest {
+
+    private static CacheAdminAccess access(String adminToken, String peerSecret) {
+        CacheProperties properties = new CacheProperties();
+        properties.setAdminToken(adminToken);
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setPeerSecret(peerSecret);
+        return new CacheAdminAccess(properties, new CacheCluster(properties, WebClient.builder(), null, null));
+    }
+
+    private static MockServerHttpRequest invalidation(String header, String value) {
+        MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.post("/admin/cache/invalidate");
+        if (header != null) {
+            builder.header(header, value);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void shouldAcceptAdminTokenOrPeerSecret() {
+        // given
+        CacheAdminAccess access = access("token-admin", "secreto-de-replicas");
+
+        // when / then
+        assertThat(access.isAllowed(invalidation(CacheAdminAccess.ADMIN_TOKEN_HEADER, "token-admin"))).isTrue();
+        assertThat(access.isAllowed(invalidation(CacheCluster.PEER_HEADER, "secreto-de-replicas"))).isTrue();
+    }
+
+    @Test
+    void shouldRejectMissingOrWrongCredential() {
+        // given
+        CacheAdminAccess access = access("token-admin", "secreto-de-replicas");
+
+        // when / then
+        assertThat(access.isAllowed(invalidation(null, null))).isFalse();
+        assertThat(access.isAllowed(invalidation(CacheAdminAccess.ADMIN_TOKEN_HEADER, "otro"))).isFalse();
+        assertThat(access.isAllowed(invalidation(CacheCluster.PEER_HEADER, "token-admin"))).isFalse();
+    }
+
+    @Test
+    void shouldRejectEverythingWithoutConfiguredCredentials() {
+        // given
+        CacheAdminAccess access = access("", "");
+
+        // when / then
+        assertThat(access.isAllowed(invalidation(CacheAdminAccess.ADMIN_TOKEN_HEADER, ""))).isFalse();
+        assertThat(access.isAllowed(invalidation(CacheCluster.PEER_HEADER, ""))).isFalse();
+    }
+}
@@ -0,0 +1,22 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CacheClusterTest {
+
+    @Test
+    void shouldRefuseToStartEnabledWithoutPeerSecret() {
+        // given
+        CacheProperties properties = new CacheProperties();
+        properties.getCluster().setEnabled(true);
+        CacheCluster cacheCluster = new CacheCluster(properties, WebClient.builder(), null, null);
+
+        // when / then
+        assertThatThrownBy(cacheCluster::start)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("peer-secret");
+    }
+}
@@ -0,0 +1,53 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    void shouldSpreadKeysAcrossMembers() {
+        // given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("gw-1", "gw-2", "gw-3"), 100);
+        Map<String, Integer> owned = new HashMap<>();
+
+        // when
+        for (int i = 0; i < 3_000; i++) {
+            owned.merge(ring.ownerOf("GET /api/products/" + i), 1, Integer::sum);
+        }
+
+        // then
+        assertThat(owned).hasSize(3);
+        assertThat(owned.values()).allSatisfy(count -> assertThat(count).isBetween(700, 1_300));
+    }
+
+    @Test
+    void shouldOnlyMoveKeysOfRemovedMember() {
+        // given
+        ConsistentHashRing before = new ConsistentHashRing(List.of("gw-1", "gw-2", "gw-3"), 100);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("gw-1", "gw-2"), 100);
+
+        // when & then
+        for (int i = 0; i < 1_000; i++) {
+            String key = "GET /api/products/" + i;
+            String owner = before.ownerOf(key);
+            if (!owner.equals("gw-3")) {
+                assertThat(after.ownerOf(key)).isEqualTo(owner);
+            }
+        }
+    }
+
+    @Test
+    void shouldReturnNullWhenEmpty() {
+        // given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), 100);
+
+        // when & then
+        assertThat(ring.ownerOf("GET /api/products/1")).isNull();
+    }
+}
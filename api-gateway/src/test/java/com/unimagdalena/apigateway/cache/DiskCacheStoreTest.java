@@ -0,0 +1,134 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DiskCacheStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static CacheEntry entry(String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new CacheEntry(HttpStatus.OK, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8), headers,
+                60_000, 0, 0, Set.of("product:1"), "GET /api/products/1");
+    }
+
+    private static String body(CacheEntry entry) {
+        ByteBuf body = entry.retainedBody();
+        try {
+            return body.toString(StandardCharsets.UTF_8);
+        } finally {
+            body.release();
+        }
+    }
+
+    @Test
+    void shouldKeepEntriesAcrossRestart() throws Exception {
+        // given
+        CacheEntry original = entry("{\"id\":\"1\"}");
+        DiskCacheStore store = new DiskCacheStore(directory, 1024 * 1024, 4);
+        store.write("GET /api/products/1", original);
+        store.close();
+
+        // when
+        DiskCacheStore reopened = new DiskCacheStore(directory, 1024 * 1024, 4);
+        CacheEntry restored = reopened.get("GET /api/products/1");
+
+        // then
+        assertThat(restored).isNotNull();
+        assertThat(body(restored)).isEqualTo("{\"id\":\"1\"}");
+        assertThat(restored.getETag()).isEqualTo(original.getETag());
+        assertThat(restored.getExpirationTime()).isEqualTo(original.getExpirationTime());
+        assertThat(restored.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        reopened.close();
+    }
+
+    @Test
+    void shouldNotReviveInvalidatedEntriesAfterRestart() throws Exception {
+        // given
+        DiskCacheStore store = new DiskCacheStore(directory, 1024 * 1024, 4);
+        store.write("GET /api/products/1", entry("{}"));
+        store.awaitWrites();
+
+        // when
+        int removed = store.removeTag("product:1");
+        store.close();
+        DiskCacheStore reopened = new DiskCacheStore(directory, 1024 * 1024, 4);
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(reopened.get("GET /api/products/1")).isNull();
+        reopened.close();
+    }
+
+    @Test
+    void shouldNotIndexQueuedWriteOfInvalidatedTag() throws Exception {
+        // given
+        DiskCacheStore store = new DiskCacheStore(directory, 1024 * 1024, 4);
+        store.write("GET /api/products/1", entry("{}"));
+
+        // when: la invalidación llega antes de que el hilo de escritura procese la cola
+        store.removeTag("product:1");
+        store.awaitWrites();
+
+        // then
+        assertThat(store.get("GET /api/products/1")).isNull();
+        store.write("GET /api/products/1", entry("{\"id\":\"1\"}"));
+        store.awaitWrites();
+        assertThat(store.get("GET /api/products/1")).isNotNull();
+        store.close();
+    }
+
+    @Test
+    void shouldKeepGzipVariant() throws Exception {
+        // given
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ByteBuf body = Unpooled.copiedBuffer("{\"name\":\"" + "teclado ".repeat(100) + "\"}", StandardCharsets.UTF_8);
+        CacheEntry original = new CacheEntry(HttpStatus.OK, body, GzipEncoding.compress(body), headers,
+                60_000, 0, 0, Set.of("product:1"), "GET /api/products/1");
+        DiskCacheStore store = new DiskCacheStore(directory, 1024 * 1024, 4);
+
+        // when
+        store.write("GET /api/products/1", original);
+        store.awaitWrites();
+        CacheEntry restored = store.get("GET /api/products/1");
+
+        // then
+        assertThat(restored.hasGzipVariant()).isTrue();
+        assertThat(restored.getWeight()).isEqualTo(original.getWeight());
+        assertThat(body(restored)).isEqualTo(body(original));
+        store.close();
+    }
+
+    @Test
+    void shouldDropOldestSegmentWhenFull() throws Exception {
+        // given
+        DiskCacheStore store = new DiskCacheStore(directory, 4 * 1024, 2);
+        String body = "x".repeat(1_500);
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            store.write("GET /api/products/" + i, entry(body));
+        }
+        store.awaitWrites();
+
+        // then
+        assertThat(store.get("GET /api/products/0")).isNull();
+        assertThat(store.get("GET /api/products/7")).isNotNull();
+        store.close();
+    }
+}
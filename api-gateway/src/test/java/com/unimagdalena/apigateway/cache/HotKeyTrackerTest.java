@@ -0,0 +1,92 @@
+package com.unimagdalena.apigateway.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HotKeyTrackerTest {
+
+    @Test
+    void shouldRankMostRequestedKeysFirst() {
+        // given
+        CacheProperties properties = new CacheProperties();
+        properties.getHotKeys().setTopK(3);
+        HotKeyTracker tracker = new HotKeyTracker(properties);
+
+        // when
+        for (int i = 0; i < 1_000; i++) {
+            record(tracker, "/api/products/flash-sale");
+            if (i % 2 == 0) {
+                record(tracker, "/api/products/popular");
+            }
+            record(tracker, "/api/products/" + i);
+        }
+
+        // then: las claves pedidas una sola vez no llegan al mínimo y no ocupan el top-K
+        List<HotKeyTracker.HotKey> hotKeys = tracker.hotKeys();
+        assertThat(hotKeys).hasSize(2);
+        assertThat(hotKeys.get(0).getKey()).isEqualTo("GET /api/products/flash-sale");
+        assertThat(hotKeys.get(1).getKey()).isEqualTo("GET /api/products/popular");
+        assertThat(hotKeys.get(0).getUri().getPath()).isEqualTo("/api/products/flash-sale");
+    }
+
+    @Test
+    void shouldKeepEstimateAtLeastTrueCount() {
+        // given
+        HotKeyTracker tracker = new HotKeyTracker(new CacheProperties());
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            record(tracker, "/api/products/1");
+        }
+
+        // then
+        assertThat(tracker.estimate("GET /api/products/1")).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    void shouldDropKeysNobodyRequestsAnymore() {
+        // given
+        HotKeyTracker tracker = new HotKeyTracker(new CacheProperties());
+        for (int i = 0; i < 100; i++) {
+            record(tracker, "/api/inventory/1");
+        }
+        long now = System.nanoTime();
+
+        // when
+        List<HotKeyTracker.HotKey> recent = tracker.hotKeys(now);
+        List<HotKeyTracker.HotKey> afterIdle = tracker.hotKeys(now + Duration.ofMinutes(1).toNanos());
+
+        // then
+        assertThat(recent).hasSize(1);
+        assertThat(afterIdle).isEmpty();
+    }
+
+    @Test
+    void shouldKeepOnlyVaryHeadersForRefresh() {
+        // given
+        HotKeyTracker tracker = new HotKeyTracker(new CacheProperties());
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            tracker.record("GET /api/products/1", MockServerHttpRequest.get("/api/products/1")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer token-de-usuario")
+                    .header(HttpHeaders.ACCEPT_LANGUAGE, "es")
+                    .build(), List.of("accept-language"));
+        }
+
+        // then
+        HttpHeaders headers = tracker.hotKeys().get(0).getHeaders();
+        assertThat(headers.containsKey(HttpHeaders.AUTHORIZATION)).isFalse();
+        assertThat(headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE)).isEqualTo("es");
+    }
+
+    private static void record(HotKeyTracker tracker, String path) {
+        tracker.record("GET " + path, MockServerHttpRequest.get(path).build(), List.of());
+    }
+}
@@ -0,0 +1,168 @@
+package com.unimagdalena.apigateway.cache;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TinyLfuCacheEngineTest {
+
+    private static CacheEntry entry(int bodySize, long ttlMillis) {
+        return new CacheEntry(Unpooled.wrappedBuffer(new byte[bodySize]), new HttpHeaders(), ttlMillis);
+    }
+
+    @Test
+    void shouldStoreAndReturnEntry() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(10_000, 1.0);
+
+        CacheEntry entry = entry(100, 60_000);
+
+        // when
+        engine.put("/api/products/1", entry);
+
+        // then
+        assertThat(engine.get("/api/products/1")).isNotNull();
+        assertThat(engine.size()).isEqualTo(1);
+        assertThat(engine.weightedSize()).isEqualTo(entry.getWeight());
+        assertThat(engine.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNeverExceedByteBudget() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(5_000, 1.0);
+
+        // when
+        for (int i = 0; i < 200; i++) {
+            engine.put("/api/products/" + i, entry(100, 60_000));
+        }
+
+        // then
+        assertThat(engine.weightedSize()).isLessThanOrEqualTo(5_000);
+        assertThat(engine.evictionCount()).isPositive();
+    }
+
+    @Test
+    void shouldKeepFrequentlyAccessedEntriesOverOneHitWonders() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(2_000, 10.0);
+        for (int i = 0; i < 10; i++) {
+            engine.put("hot-" + i, entry(100, 60_000));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                engine.get("hot-" + i);
+            }
+        }
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            engine.get("cold-" + i);
+            engine.put("cold-" + i, entry(100, 60_000));
+        }
+
+        // then
+        int hotRetained = 0;
+        for (int i = 0; i < 10; i++) {
+            if (engine.get("hot-" + i) != null) {
+                hotRetained++;
+            }
+        }
+        assertThat(hotRetained).isGreaterThanOrEqualTo(8);
+    }
+
+    @Test
+    void shouldRejectEntryLargerThanBudget() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(1_000, 1.0);
+
+        // when
+        engine.put("/api/products/big", entry(2_000, 60_000));
+
+        // then
+        assertThat(engine.get("/api/products/big")).isNull();
+        assertThat(engine.weightedSize()).isZero();
+    }
+
+    @Test
+    void shouldRemoveExpiredEntriesOnCleanUp() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(10_000, 1.0);
+        engine.put("expired", entry(100, -1));
+        CacheEntry valid = entry(100, 60_000);
+        engine.put("valid", valid);
+
+        // when
+        int removed = engine.cleanUp();
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(engine.size()).isEqualTo(1);
+        assertThat(engine.weightedSize()).isEqualTo(valid.getWeight());
+    }
+
+    @Test
+    void shouldReleaseBodyWhenEntryIsEvicted() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(10_000, 1.0);
+        CacheEntry cached = entry(100, 60_000);
+        engine.put("/api/products/1", cached);
+
+        // when
+        engine.invalidate("/api/products/1");
+
+        // then
+        assertThat(cached.retainedBody()).isNull();
+    }
+
+    @Test
+    void shouldInvalidateEntriesByTag() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(10_000, 1.0);
+        engine.put("GET /api/products?page=0", taggedEntry("products:list"));
+        engine.put("GET /api/products?page=1", taggedEntry("products:list"));
+        engine.put("GET /api/products/1", entry(100, 60_000));
+
+        // when
+        int removed = engine.invalidateTag("products:list");
+
+        // then
+        assertThat(removed).isEqualTo(2);
+        assertThat(engine.keys()).containsExactly("GET /api/products/1");
+    }
+
+    @Test
+    void shouldInvalidateByResourcePrefixAndCountRemovalsByCause() {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(10_000, 1.0);
+        engine.put("a", resourceEntry("GET /api/products/1"));
+        engine.put("b", resourceEntry("GET /api/products/2"));
+        engine.put("c", resourceEntry("GET /api/orders/1"));
+        engine.put("c", resourceEntry("GET /api/orders/1"));
+
+        // when
+        int removed = engine.invalidatePrefix("GET /api/products/");
+
+        // then
+        assertThat(removed).isEqualTo(2);
+        assertThat(engine.keys()).containsExactly("c");
+        assertThat(engine.removalCount(RemovalCause.EXPLICIT)).isEqualTo(2);
+        assertThat(engine.removalCount(RemovalCause.REPLACED)).isEqualTo(1);
+        assertThat(engine.removalCount(RemovalCause.SIZE)).isZero();
+    }
+
+    private static CacheEntry resourceEntry(String resource) {
+        return new CacheEntry(HttpStatus.OK, Unpooled.wrappedBuffer(new byte[100]), new HttpHeaders(),
+                60_000, 0, 0, Set.of(), resource);
+    }
+
+    private static CacheEntry taggedEntry(String tag) {
+        return new CacheEntry(HttpStatus.OK, Unpooled.wrappedBuffer(new byte[100]), new HttpHeaders(),
+                60_000, 0, 0, Set.of(tag), "GET /api/products");
+    }
+}
@@ -0,0 +1,79 @@
+package com.unimagdalena.apigateway.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GradientLimiterTest {
+
+    private static final long MILLIS = 1_000_000L;
+    private static final long WINDOW = 100 * MILLIS;
+
+    private static GradientLimiter limiter(long now) {
+        return new GradientLimiter(20, 5, 200, 1.5, 0.5, WINDOW, 30_000 * MILLIS, now);
+    }
+
+    // Una ventana con el límite completo en uso y todas las respuestas con la misma latencia
+    private static long window(GradientLimiter limiter, long now, long rttNanos) {
+        int permits = limiter.getLimit();
+        for (int i = 0; i < permits; i++) {
+            limiter.tryAcquire();
+        }
+        for (int i = 0; i < permits; i++) {
+            limiter.release(rttNanos, false, now);
+        }
+        return now + WINDOW;
+    }
+
+    @Test
+    void shouldGrowWhileLatencyStaysAtBaseline() {
+        // given
+        long now = 0;
+        GradientLimiter limiter = limiter(now);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            now = window(limiter, now + WINDOW, 20 * MILLIS);
+        }
+
+        // then
+        assertThat(limiter.getLimit()).isGreaterThan(20);
+    }
+
+    @Test
+    void shouldShrinkWhenLatencyRisesAboveBaseline() {
+        // given
+        long now = 0;
+        GradientLimiter limiter = limiter(now);
+        for (int i = 0; i < 5; i++) {
+            now = window(limiter, now + WINDOW, 20 * MILLIS);
+        }
+        int beforeOverload = limiter.getLimit();
+
+        // when: la base de datos se satura y la latencia se multiplica por diez
+        for (int i = 0; i < 10; i++) {
+            now = window(limiter, now + WINDOW, 200 * MILLIS);
+        }
+
+        // then
+        assertThat(limiter.getLimit()).isLessThan(beforeOverload / 2);
+    }
+
+    @Test
+    void shouldRejectBeyondLimitAndBackOffOnDrops() {
+        // given
+        GradientLimiter limiter = limiter(0);
+        for (int i = 0; i < 20; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        // when
+        boolean overLimit = limiter.tryAcquire();
+        limiter.release(0, true, WINDOW);
+
+        // then
+        assertThat(overLimit).isFalse();
+        assertThat(limiter.getLimit()).isEqualTo(18);
+        assertThat(limiter.getInFlight()).isEqualTo(19);
+    }
+}
@@ -0,0 +1,83 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unimagdalena.apigateway.filter.ServiceUnavailableWriter;
+import com.unimagdalena.apigateway.shedding.LoadShedder;
+import com.unimagdalena.apigateway.shedding.LoadSheddingProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyFilterFactoryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // Cada liberación recalcula el límite: una caída lo baja al 90 % de inmediato
+    private GatewayFilter filter() {
+        return new AdaptiveConcurrencyFilterFactory(registry, new LoadShedder(new LoadSheddingProperties(), registry),
+                new ServiceUnavailableWriter(new ObjectMapper())).apply(c -> {
+            c.setName("order-service");
+            c.setInitialLimit(20);
+            c.setUpdateInterval(Duration.ofNanos(1));
+        });
+    }
+
+    private double limit() {
+        return registry.get("gateway.concurrency.limit").gauge().value();
+    }
+
+    private static MockServerWebExchange get() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/1").build());
+    }
+
+    @Test
+    void shouldIgnoreClientCancellationsAndShortCircuitedFallbacks() throws InterruptedException {
+        // given
+        GatewayFilter filter = filter();
+        MockServerWebExchange cancelled = get();
+        MockServerWebExchange shortCircuited = get();
+        shortCircuited.getAttributes().put(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR,
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("order-service")));
+
+        // when
+        Disposable inFlight = filter.filter(cancelled, exchange -> Mono.never()).subscribe();
+        Thread.sleep(1);
+        inFlight.dispose();
+        filter.filter(shortCircuited, exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        }).block();
+
+        // then
+        assertThat(limit()).isEqualTo(20);
+        assertThat(registry.get("gateway.concurrency.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldLowerLimitOnUpstreamTimeout() throws InterruptedException {
+        // given
+        GatewayFilter filter = filter();
+        MockServerWebExchange timedOut = get();
+        timedOut.getAttributes().put(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR, new TimeoutException());
+        Thread.sleep(1);
+
+        // when
+        filter.filter(timedOut, exchange -> exchange.getResponse().setComplete()).block();
+
+        // then
+        assertThat(limit()).isEqualTo(18);
+    }
+}
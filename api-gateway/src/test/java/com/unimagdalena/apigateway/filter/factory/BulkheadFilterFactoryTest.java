@@ -0,0 +1,86 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unimagdalena.apigateway.filter.ServiceUnavailableWriter;
+import com.unimagdalena.apigateway.shedding.LoadShedder;
+import com.unimagdalena.apigateway.shedding.LoadSheddingProperties;
+import com.unimagdalena.apigateway.shedding.PriorityClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkheadFilterFactoryTest {
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path).build());
+    }
+
+    private static GatewayFilter bulkhead(SimpleMeterRegistry registry, int maxConcurrentCalls) {
+        return new BulkheadFilterFactory(registry, new LoadShedder(new LoadSheddingProperties(), registry),
+                new ServiceUnavailableWriter(new ObjectMapper())).apply(c -> {
+            c.setName("inventory-service");
+            c.setMaxConcurrentCalls(maxConcurrentCalls);
+        });
+    }
+
+    @Test
+    void shouldRejectCallsBeyondConcurrencyLimitAndReleaseSlots() {
+        // given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GatewayFilter filter = bulkhead(registry, 1);
+        Sinks.Empty<Void> slowService = Sinks.empty();
+        GatewayFilterChain slow = exchange -> slowService.asMono();
+        GatewayFilterChain fast = exchange -> exchange.getResponse().setComplete();
+        Disposable inFlight = filter.filter(get("/api/inventory/1"), slow).subscribe();
+        MockServerWebExchange rejected = get("/api/inventory/2");
+
+        // when
+        filter.filter(rejected, fast).block();
+        slowService.tryEmitEmpty();
+        MockServerWebExchange afterRelease = get("/api/inventory/3");
+        filter.filter(afterRelease, fast).block();
+
+        // then
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(rejected.getResponse().getBodyAsString().block())
+                .isEqualTo("{\"error\":\"Servicio saturado\",\"service\":\"inventory-service\"}");
+        assertThat(afterRelease.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(registry.get("gateway.bulkhead.rejected").counter().count()).isEqualTo(1);
+        assertThat(registry.get("gateway.bulkhead.active").gauge().value()).isZero();
+        assertThat(inFlight.isDisposed()).isTrue();
+    }
+
+    @Test
+    void shouldKeepHeadroomForHigherPriorityClasses() {
+        // given: LOW ocupa como máximo la mitad del bulkhead
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GatewayFilter filter = bulkhead(registry, 2);
+        Sinks.Empty<Void> slowService = Sinks.empty();
+        MockServerWebExchange browsing = get("/api/products/1");
+        browsing.getAttributes().put(LoadShedder.PRIORITY_ATTR, PriorityClass.LOW);
+        filter.filter(browsing, exchange -> slowService.asMono()).subscribe();
+        MockServerWebExchange moreBrowsing = get("/api/products/2");
+        moreBrowsing.getAttributes().put(LoadShedder.PRIORITY_ATTR, PriorityClass.LOW);
+        MockServerWebExchange checkout = get("/api/orders");
+        checkout.getAttributes().put(LoadShedder.PRIORITY_ATTR, PriorityClass.CRITICAL);
+
+        // when
+        filter.filter(moreBrowsing, exchange -> exchange.getResponse().setComplete()).block();
+        filter.filter(checkout, exchange -> exchange.getResponse().setComplete()).block();
+
+        // then
+        assertThat(moreBrowsing.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(checkout.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        slowService.tryEmitEmpty();
+    }
+}
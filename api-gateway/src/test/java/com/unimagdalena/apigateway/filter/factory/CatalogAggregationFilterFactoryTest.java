@@ -0,0 +1,197 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unimagdalena.apigateway.aggregation.ServiceClient;
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import com.unimagdalena.apigateway.cache.CacheMetrics;
+import com.unimagdalena.apigateway.cache.CachePrincipalResolver;
+import com.unimagdalena.apigateway.cache.CacheProperties;
+import com.unimagdalena.apigateway.cache.CacheRefresher;
+import com.unimagdalena.apigateway.cache.CacheRule;
+import com.unimagdalena.apigateway.cache.HotKeyTracker;
+import com.unimagdalena.apigateway.cache.TinyLfuCacheEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CatalogAggregationFilterFactoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Responde cada URI con la respuesta configurada, sin Eureka ni servicios
+    private static ServiceClient stubbed(Map<String, Mono<Reply>> replies) {
+        return new ServiceClient(WebClient.builder(), new ReactorLoadBalancerExchangeFilterFunction(null, List.of())) {
+            @Override
+            public Mono<Void> get(URI uri, ServerWebExchange exchange) {
+                return replies.getOrDefault(uri.toString(), Mono.error(new IllegalStateException("URI inesperada " + uri)))
+                        .flatMap(reply -> {
+                            ServerHttpResponse response = exchange.getResponse();
+                            response.setStatusCode(HttpStatus.valueOf(reply.status()));
+                            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                            return response.writeWith(Mono.just(response.bufferFactory()
+                                    .wrap(reply.body().getBytes(StandardCharsets.UTF_8))));
+                        });
+            }
+        };
+    }
+
+    private static Mono<Reply> json(int status, String body) {
+        return Mono.just(new Reply(status, body));
+    }
+
+    private MockServerWebExchange run(ServiceClient serviceClient, GatewayFilter productCache) {
+        CatalogAggregationFilterFactory factory =
+                new CatalogAggregationFilterFactory(serviceClient, objectMapper, meterRegistry);
+        GatewayFilter filter = factory.apply(c -> {
+            c.setName("catalog");
+            c.addBranch("product", "lb://product-service/api/products/{id}", Duration.ofSeconds(1), productCache)
+                    .addBranch("inventory", "lb://inventory-service/api/inventory/{id}", Duration.ofMillis(100));
+        });
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/catalog/7")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build());
+        ServerWebExchangeUtils.putUriTemplateVariables(exchange, Map.of("id", "7"));
+        filter.filter(exchange, e -> Mono.error(new IllegalStateException("La ruta compuesta no continúa la cadena")))
+                .block(Duration.ofSeconds(5));
+        return exchange;
+    }
+
+    private MockServerWebExchange run(ServiceClient serviceClient) {
+        return run(serviceClient, null);
+    }
+
+    private JsonNode body(MockServerWebExchange exchange) throws Exception {
+        return objectMapper.readTree(exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void shouldMergeProductAndInventoryIntoOneResponse() throws Exception {
+        // given
+        ServiceClient serviceClient = stubbed(Map.of(
+                "lb://product-service/api/products/7", json(200, "{\"id\":7,\"name\":\"Teclado\",\"price\":120.0}"),
+                "lb://inventory-service/api/inventory/7", json(200, "{\"id\":7,\"quantity\":15}")));
+
+        // when
+        MockServerWebExchange exchange = run(serviceClient);
+
+        // then
+        JsonNode body = body(exchange);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body.get("name").asText()).isEqualTo("Teclado");
+        assertThat(body.get("inventory").get("quantity").asInt()).isEqualTo(15);
+        assertThat(body.has("partial")).isFalse();
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Aggregate-Cache"))
+                .isEqualTo("product=NONE, inventory=NONE");
+    }
+
+    @Test
+    void shouldReturnPartialResultWhenInventoryTimesOut() throws Exception {
+        // given
+        ServiceClient serviceClient = stubbed(Map.of(
+                "lb://product-service/api/products/7", json(200, "{\"id\":7,\"name\":\"Teclado\"}"),
+                "lb://inventory-service/api/inventory/7", Mono.never()));
+
+        // when
+        MockServerWebExchange exchange = run(serviceClient);
+
+        // then
+        JsonNode body = body(exchange);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body.get("name").asText()).isEqualTo("Teclado");
+        assertThat(body.get("inventory").isNull()).isTrue();
+        assertThat(body.get("partial").asBoolean()).isTrue();
+        assertThat(body.get("errors").get("inventory").asText()).isEqualTo("timeout");
+        assertThat(meterRegistry.get("gateway.aggregation.branch")
+                .tag("branch", "inventory").tag("outcome", "timeout").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPassThroughNotFoundOfMainResource() {
+        // given
+        ServiceClient serviceClient = stubbed(Map.of(
+                "lb://product-service/api/products/7", json(404, "{\"error\":\"Producto no encontrado\"}"),
+                "lb://inventory-service/api/inventory/7", json(404, "")));
+
+        // when
+        MockServerWebExchange exchange = run(serviceClient);
+
+        // then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(exchange.getResponse().getBodyAsString().block()).contains("Producto no encontrado");
+    }
+
+    @Test
+    void shouldAnswerServiceUnavailableWhenEveryBranchFails() throws Exception {
+        // given
+        ServiceClient serviceClient = stubbed(Map.of(
+                "lb://product-service/api/products/7", json(503, "{\"error\":\"Servicio no disponible temporalmente\"}"),
+                "lb://inventory-service/api/inventory/7", Mono.error(new IllegalStateException("conexión rechazada"))));
+
+        // when
+        MockServerWebExchange exchange = run(serviceClient);
+
+        // then
+        JsonNode body = body(exchange);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(body.get("errors").get("product").asText()).isEqualTo("status_503");
+        assertThat(body.get("errors").get("inventory").asText()).isEqualTo("error");
+    }
+
+    @Test
+    void shouldServeProductBranchFromTheRouteCache() throws Exception {
+        // given
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(1_000_000, 1.0);
+        ProductCachingFilterFactory cachingFactory = new ProductCachingFilterFactory(engine,
+                new CacheRefresher(WebClient.builder()),
+                new CacheCluster(new CacheProperties(), WebClient.builder(), null, null),
+                new HotKeyTracker(new CacheProperties()),
+                new CachePrincipalResolver(token -> Mono.error(new BadJwtException("Firma no válida"))),
+                new CacheMetrics(engine, meterRegistry));
+        GatewayFilter productCache = cachingFactory.apply(c -> c.addRule(new CacheRule("/api/products/{id}")
+                .cacheStatus(200, 60)));
+        AtomicInteger productCalls = new AtomicInteger();
+        ServiceClient serviceClient = stubbed(Map.of(
+                "lb://product-service/api/products/7", Mono.fromSupplier(() -> {
+                    productCalls.incrementAndGet();
+                    return new Reply(200, "{\"id\":7,\"name\":\"Teclado\"}");
+                }),
+                "lb://inventory-service/api/inventory/7", json(200, "{\"quantity\":15}")));
+
+        // when
+        run(serviceClient, productCache);
+        MockServerWebExchange second = run(serviceClient, productCache);
+
+        // then
+        assertThat(productCalls.get()).isEqualTo(1);
+        assertThat(body(second).get("name").asText()).isEqualTo("Teclado");
+        assertThat(second.getResponse().getHeaders().getFirst("X-Aggregate-Cache"))
+                .isEqualTo("product=HIT, inventory=NONE");
+        assertThat(second.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+    }
+
+    private record Reply(int status, String body) {
+    }
+}
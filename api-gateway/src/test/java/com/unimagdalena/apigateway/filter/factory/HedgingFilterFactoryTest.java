@@ -0,0 +1,61 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.hedging.HedgePolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HedgingFilterFactoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private GatewayFilter filter() {
+        HedgingFilterFactory factory = new HedgingFilterFactory(meterRegistry);
+        return factory.apply(c -> {
+            c.setName("product-service");
+            c.addPath("/api/products/{id}");
+        });
+    }
+
+    @Test
+    void shouldMarkSafeReadsOfConfiguredPaths() {
+        // given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1").build());
+        AtomicInteger routed = new AtomicInteger();
+        GatewayFilterChain chain = forwarded -> {
+            routed.incrementAndGet();
+            return Mono.empty();
+        };
+
+        // when
+        filter().filter(exchange, chain).block();
+
+        // then
+        assertThat(routed.get()).isEqualTo(1);
+        assertThat(exchange.<HedgePolicy>getAttribute(HedgePolicy.HEDGE_POLICY_ATTR)).isNotNull();
+    }
+
+    @Test
+    void shouldNotMarkUnsafeMethodsOrOtherPaths() {
+        // given
+        MockServerWebExchange put = MockServerWebExchange.from(MockServerHttpRequest.put("/api/products/1").build());
+        MockServerWebExchange list = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products").build());
+        GatewayFilter filter = filter();
+
+        // when
+        filter.filter(put, forwarded -> Mono.empty()).block();
+        filter.filter(list, forwarded -> Mono.empty()).block();
+
+        // then
+        assertThat(put.getAttributes()).doesNotContainKey(HedgePolicy.HEDGE_POLICY_ATTR);
+        assertThat(list.getAttributes()).doesNotContainKey(HedgePolicy.HEDGE_POLICY_ATTR);
+    }
+}
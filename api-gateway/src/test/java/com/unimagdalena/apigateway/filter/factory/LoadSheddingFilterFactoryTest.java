@@ -0,0 +1,62 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unimagdalena.apigateway.cache.CachePrincipalResolver;
+import com.unimagdalena.apigateway.filter.ServiceUnavailableWriter;
+import com.unimagdalena.apigateway.shedding.LoadShedder;
+import com.unimagdalena.apigateway.shedding.LoadSheddingProperties;
+import com.unimagdalena.apigateway.shedding.PriorityClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadSheddingFilterFactoryTest {
+
+    // Sólo "valid-token" pasa la verificación
+    private final CachePrincipalResolver principalResolver = new CachePrincipalResolver(token -> "valid-token".equals(token)
+            ? Mono.just(Jwt.withTokenValue(token).header("alg", "RS256").subject("user-1")
+                    .issuedAt(Instant.now()).expiresAt(Instant.now().plusSeconds(60)).build())
+            : Mono.error(new BadJwtException("Firma no válida")));
+
+    private GatewayFilter filter() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new LoadSheddingFilterFactory(new LoadShedder(new LoadSheddingProperties(), registry),
+                principalResolver, new ServiceUnavailableWriter(new ObjectMapper())).apply(c -> {
+            c.setName("product-service");
+            c.setAnonymousPriority(PriorityClass.LOW);
+        });
+    }
+
+    private PriorityClass priorityOf(String authorization) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/products/1");
+        if (authorization != null) {
+            request.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request.build());
+        filter().filter(exchange, e -> e.getResponse().setComplete()).block();
+        return exchange.getAttribute(LoadShedder.PRIORITY_ATTR);
+    }
+
+    @Test
+    void shouldTreatForgedAuthorizationAsAnonymous() {
+        // when
+        PriorityClass forged = priorityOf("x");
+        PriorityClass invalidBearer = priorityOf("Bearer forged");
+        PriorityClass verified = priorityOf("Bearer valid-token");
+
+        // then
+        assertThat(forged).isEqualTo(PriorityClass.LOW);
+        assertThat(invalidBearer).isEqualTo(PriorityClass.LOW);
+        assertThat(verified).isEqualTo(PriorityClass.NORMAL);
+    }
+}
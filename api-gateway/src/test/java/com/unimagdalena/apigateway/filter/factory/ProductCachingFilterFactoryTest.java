@@ -0,0 +1,561 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import com.unimagdalena.apigateway.cache.CacheMetrics;
+import com.unimagdalena.apigateway.cache.CachePrincipalResolver;
+import com.unimagdalena.apigateway.cache.CacheProperties;
+import com.unimagdalena.apigateway.cache.CacheRefresher;
+import com.unimagdalena.apigateway.cache.CacheRule;
+import com.unimagdalena.apigateway.cache.CacheScope;
+import com.unimagdalena.apigateway.cache.HotKeyTracker;
+import com.unimagdalena.apigateway.cache.TinyLfuCacheEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProductCachingFilterFactoryTest {
+
+    private ProductCachingFilterFactory factory;
+    private AtomicInteger upstreamCalls;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        TinyLfuCacheEngine engine = new TinyLfuCacheEngine(1_000_000, 1.0);
+        registry = new SimpleMeterRegistry();
+        factory = new ProductCachingFilterFactory(engine,
+                new CacheRefresher(WebClient.builder()),
+                new CacheCluster(new CacheProperties(), WebClient.builder(), null, null),
+                new HotKeyTracker(new CacheProperties()),
+                new CachePrincipalResolver(token -> token.startsWith("user-")
+                        ? Mono.just(Jwt.withTokenValue(token).header("alg", "RS256").subject(token).build())
+                        : Mono.error(new BadJwtException("Firma no válida"))),
+                new CacheMetrics(engine, registry));
+        upstreamCalls = new AtomicInteger();
+    }
+
+    private GatewayFilterChain upstream(String body, Duration latency) {
+        return upstream(HttpStatus.OK, body, latency);
+    }
+
+    private GatewayFilterChain upstream(HttpStatus status, String body, Duration latency) {
+        return exchange -> Mono.delay(latency).then(Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(status);
+            DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+            return response.writeWith(Mono.just(buffer));
+        }));
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path).build());
+    }
+
+    @Test
+    void shouldServeSecondRequestFromCache() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = upstream("{\"id\":\"1\"}", Duration.ZERO);
+        MockServerWebExchange first = get("/api/products/3f2b9c1e-8a4d-4f6b-9c2e-1d7a5b3c9e01");
+        MockServerWebExchange second = get("/api/products/3f2b9c1e-8a4d-4f6b-9c2e-1d7a5b3c9e01");
+
+        // when
+        filter.filter(first, chain).block();
+        filter.filter(second, chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        assertThat(second.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        StepVerifier.create(second.getResponse().getBodyAsString())
+                .expectNext("{\"id\":\"1\"}")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCoalesceConcurrentMisses() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = upstream("{\"id\":\"2\"}", Duration.ofMillis(200));
+        MockServerWebExchange leader = get("/api/products/2");
+        MockServerWebExchange follower = get("/api/products/2");
+
+        // when
+        Mono.when(filter.filter(leader, chain), filter.filter(follower, chain)).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        assertThat(follower.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("COALESCED");
+        assertThat(factory.getCacheStats().get("coalescedRequests")).isEqualTo(1L);
+        StepVerifier.create(follower.getResponse().getBodyAsString())
+                .expectNext("{\"id\":\"2\"}")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldServeStaleCopyWhenServiceFails() throws InterruptedException {
+        // given
+        GatewayFilter filter = factory.apply(c -> {
+            c.setTtlSeconds(0);
+            c.setStaleIfErrorSeconds(60);
+        });
+        filter.filter(get("/api/products/3"), upstream("{\"id\":\"3\"}", Duration.ZERO)).block();
+        Thread.sleep(5);
+        GatewayFilterChain failing = exchange -> Mono.error(new IllegalStateException("product-service caído"));
+        MockServerWebExchange exchange = get("/api/products/3");
+
+        // when
+        filter.filter(exchange, failing).block();
+
+        // then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("STALE-IF-ERROR");
+        StepVerifier.create(exchange.getResponse().getBodyAsString())
+                .expectNext("{\"id\":\"3\"}")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldServeStaleCopyWithinRevalidationWindow() throws InterruptedException {
+        // given
+        GatewayFilter filter = factory.apply(c -> {
+            c.setTtlSeconds(0);
+            c.setStaleWhileRevalidateSeconds(60);
+        });
+        GatewayFilterChain chain = upstream("{\"id\":\"4\"}", Duration.ZERO);
+        filter.filter(get("/api/products/4"), chain).block();
+        Thread.sleep(5);
+        MockServerWebExchange exchange = get("/api/products/4");
+
+        // when
+        filter.filter(exchange, chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("STALE");
+    }
+
+    @Test
+    void shouldStreamOversizedBodyWithoutCaching() {
+        // given
+        GatewayFilter filter = factory.apply(c -> {
+            c.setTtlSeconds(60);
+            c.setMaxCacheableBodyBytes(4);
+        });
+        GatewayFilterChain chain = upstream("{\"id\":\"5\"}", Duration.ZERO);
+        MockServerWebExchange first = get("/api/products/5");
+
+        // when
+        filter.filter(first, chain).block();
+        filter.filter(get("/api/products/5"), chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+        StepVerifier.create(first.getResponse().getBodyAsString())
+                .expectNext("{\"id\":\"5\"}")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCacheNotFoundResponsesWhenConfigured() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.addRule(new CacheRule("/api/products/{id}")
+                .cacheStatus(200, 60)
+                .cacheStatus(404, 30)));
+        GatewayFilterChain chain = upstream(HttpStatus.NOT_FOUND, "", Duration.ZERO);
+        MockServerWebExchange second = get("/api/products/missing");
+
+        // when
+        filter.filter(get("/api/products/missing"), chain).block();
+        filter.filter(second, chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldNormalizeQueryParametersInCacheKey() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.addRule(new CacheRule("/api/products")
+                .queryParams("page", "size")));
+        GatewayFilterChain chain = upstream("[]", Duration.ZERO);
+
+        // when
+        filter.filter(get("/api/products?size=20&page=1&utm=mail"), chain).block();
+        filter.filter(get("/api/products?page=1&size=20"), chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheRequestsOutsideRules() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = upstream("{}", Duration.ZERO);
+
+        // when
+        filter.filter(get("/api/products/1/reviews"), chain).block();
+        filter.filter(get("/api/products/1/reviews"), chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldInvalidateProductListAfterWrite() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.addRule(new CacheRule("/api/products")
+                .queryParams("*")
+                .tags("products:list")
+                .invalidatedBy("/api/products/**")));
+        GatewayFilterChain chain = upstream("[]", Duration.ZERO);
+        filter.filter(get("/api/products?page=0"), chain).block();
+        MockServerWebExchange update = MockServerWebExchange.from(MockServerHttpRequest.put("/api/products/7").build());
+
+        // when
+        filter.filter(update, chain).block();
+        filter.filter(get("/api/products?page=0"), chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(3);
+        assertThat(factory.getCacheStats().get("invalidations")).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldNotStoreListLoadedDuringWrite() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.addRule(new CacheRule("/api/products")
+                .tags("products:list")
+                .invalidatedBy("/api/products/**")));
+        MockServerWebExchange create = MockServerWebExchange.from(MockServerHttpRequest.post("/api/products").build());
+
+        // when
+        Mono.when(filter.filter(get("/api/products"), upstream("[]", Duration.ofMillis(200))),
+                filter.filter(create, upstream(HttpStatus.CREATED, "{}", Duration.ZERO))).block();
+        filter.filter(get("/api/products"), upstream("[{}]", Duration.ZERO)).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldAnswerNotModifiedFromCacheWhenETagMatches() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = upstream("{\"id\":\"8\"}", Duration.ZERO);
+        filter.filter(get("/api/products/8"), chain).block();
+        MockServerWebExchange hit = get("/api/products/8");
+        filter.filter(hit, chain).block();
+        String etag = hit.getResponse().getHeaders().getETag();
+        MockServerWebExchange conditional = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/8")
+                .ifNoneMatch(etag)
+                .build());
+
+        // when
+        filter.filter(conditional, chain).block();
+
+        // then
+        assertThat(etag).isNotBlank();
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        StepVerifier.create(conditional.getResponse().getBody())
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldAnswerNotModifiedOnFreshLoadWhenETagMatches() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = upstream("{\"id\":\"9\"}", Duration.ZERO);
+        filter.filter(get("/api/products/9"), chain).block();
+        MockServerWebExchange hit = get("/api/products/9");
+        filter.filter(hit, chain).block();
+        factory.clearCache();
+        MockServerWebExchange conditional = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/9")
+                .ifNoneMatch(hit.getResponse().getHeaders().getETag())
+                .build());
+
+        // when
+        filter.filter(conditional, chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(conditional.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+    }
+
+    @Test
+    void shouldInvalidateOnlyUpdatedProduct() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(3600));
+        GatewayFilterChain chain = upstream("{}", Duration.ZERO);
+        filter.filter(get("/api/products/10"), chain).block();
+        filter.filter(get("/api/products/11"), chain).block();
+        MockServerWebExchange delete = MockServerWebExchange.from(MockServerHttpRequest.delete("/api/products/10").build());
+
+        // when
+        filter.filter(delete, chain).block();
+        filter.filter(get("/api/products/10"), chain).block();
+        filter.filter(get("/api/products/11"), chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldKeepPrincipalScopedEntriesPerUser() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.addRule(new CacheRule("/api/orders/{id}")
+                .scope(CacheScope.PRINCIPAL)
+                .cacheStatus(200, 30)));
+        GatewayFilterChain chain = upstream("{\"id\":\"7\"}", Duration.ZERO);
+        MockServerWebExchange alice = withToken("user-alice");
+        MockServerWebExchange bob = withToken("user-bob");
+        MockServerWebExchange aliceAgain = withToken("user-alice");
+
+        // when
+        filter.filter(alice, chain).block();
+        filter.filter(bob, chain).block();
+        filter.filter(aliceAgain, chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+        assertThat(bob.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(aliceAgain.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+    }
+
+    @Test
+    void shouldNotCachePrincipalScopedRequestsWithoutValidToken() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.addRule(new CacheRule("/api/orders/{id}")
+                .scope(CacheScope.PRINCIPAL)
+                .cacheStatus(200, 30)));
+        GatewayFilterChain chain = upstream("{}", Duration.ZERO);
+
+        // when
+        filter.filter(get("/api/orders/8"), chain).block();
+        filter.filter(get("/api/orders/8"), chain).block();
+        filter.filter(withToken("forged"), chain).block();
+        filter.filter(withToken("forged"), chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(4);
+        assertThat(factory.getCacheStats().get("cacheSize")).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldKeepSeparateVariantsForVaryHeaders() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setVary(List.of(HttpHeaders.ACCEPT));
+            String body = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+        };
+
+        // when
+        filter.filter(accepting("application/json"), chain).block();
+        filter.filter(accepting("application/xml"), chain).block();
+        MockServerWebExchange json = accepting("application/json");
+        MockServerWebExchange xml = accepting("application/xml");
+        filter.filter(json, chain).block();
+        filter.filter(xml, chain).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+        StepVerifier.create(json.getResponse().getBodyAsString())
+                .expectNext("application/json")
+                .verifyComplete();
+        StepVerifier.create(xml.getResponse().getBodyAsString())
+                .expectNext("application/xml")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotHandCoalescedRequestsAnotherVariant() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = exchange -> Mono.delay(Duration.ofMillis(200)).then(Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setVary(List.of(HttpHeaders.ACCEPT));
+            String body = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+        }));
+        MockServerWebExchange json = accepting("application/json");
+        MockServerWebExchange sameVariant = accepting("application/json");
+        MockServerWebExchange xml = accepting("application/xml");
+
+        // when: las tres se coalescen antes de que el servicio revele el Vary
+        Mono.when(filter.filter(json, chain), filter.filter(sameVariant, chain), filter.filter(xml, chain)).block();
+
+        // then
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+        assertThat(sameVariant.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("COALESCED");
+        StepVerifier.create(sameVariant.getResponse().getBodyAsString())
+                .expectNext("application/json")
+                .verifyComplete();
+        StepVerifier.create(xml.getResponse().getBodyAsString())
+                .expectNext("application/xml")
+                .verifyComplete();
+    }
+
+    private static MockServerWebExchange withToken(String token) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/7")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .build());
+    }
+
+    private static MockServerWebExchange accepting(String mediaType) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/12")
+                .header(HttpHeaders.ACCEPT, mediaType)
+                .build());
+    }
+
+    @Test
+    void shouldPublishCacheMeters() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = upstream("{}", Duration.ZERO);
+
+        // when
+        filter.filter(get("/api/products/13"), chain).block();
+        filter.filter(get("/api/products/13"), chain).block();
+
+        // then
+        assertThat(registry.get("gateway.cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("gateway.cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("gateway.cache.size").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("gateway.cache.load").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldListAndInvalidateEntriesByResource() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        GatewayFilterChain chain = upstream("{}", Duration.ZERO);
+        filter.filter(get("/api/products/14"), chain).block();
+        filter.filter(get("/api/products/15"), chain).block();
+
+        // when
+        List<Map<String, Object>> firstPage = factory.cachedEntries(0, 1);
+        int removed = factory.invalidateKeys(Set.of("GET /api/products/14"));
+
+        // then
+        assertThat(firstPage).extracting(item -> item.get("resource")).containsExactly("GET /api/products/14");
+        assertThat(removed).isEqualTo(1);
+        assertThat(factory.cachedEntries(0, 10)).extracting(item -> item.get("resource"))
+                .containsExactly("GET /api/products/15");
+    }
+
+    @Test
+    void shouldStoreGzipVariantAndServeItToClientsAcceptingGzip() throws IOException {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        String json = "{\"description\":\"" + "producto ".repeat(300) + "\"}";
+        AtomicReference<String> upstreamAcceptEncoding = new AtomicReference<>("sin leer");
+        GatewayFilterChain chain = exchange -> {
+            upstreamAcceptEncoding.set(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+            exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return upstream(json, Duration.ZERO).filter(exchange);
+        };
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/16")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, br")
+                .build()), chain).block();
+        MockServerWebExchange compressed = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/16")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .build());
+        MockServerWebExchange identity = get("/api/products/16");
+
+        // when
+        filter.filter(compressed, chain).block();
+        filter.filter(identity, chain).block();
+
+        // then
+        assertThat(upstreamAcceptEncoding.get()).isNull();
+        HttpHeaders headers = compressed.getResponse().getHeaders();
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(headers.getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(headers.getETag()).endsWith("-gzip\"");
+        byte[] gzipped = DataBufferUtils.join(compressed.getResponse().getBody())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .block();
+        assertThat(gzipped.length).isLessThan(json.length() / 5);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(json);
+        }
+        assertThat(identity.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        StepVerifier.create(identity.getResponse().getBodyAsString())
+                .expectNext(json)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRevalidateMissETagAgainstLaterHits() {
+        // given
+        GatewayFilter filter = factory.apply(c -> c.setTtlSeconds(60));
+        String json = "{\"description\":\"" + "producto ".repeat(300) + "\"}";
+        GatewayFilterChain chain = exchange -> {
+            exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return upstream(json, Duration.ZERO).filter(exchange);
+        };
+        MockServerWebExchange miss = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/17")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build());
+        filter.filter(miss, chain).block();
+        String missETag = miss.getResponse().getHeaders().getETag();
+
+        // when
+        MockServerWebExchange revalidation = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/17")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, missETag)
+                .build());
+        filter.filter(revalidation, chain).block();
+
+        // then
+        assertThat(miss.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(miss.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(missETag).endsWith("-gzip\"");
+        assertThat(revalidation.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidation.getResponse().getHeaders().getETag()).isEqualTo(missETag);
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,81 @@
+package com.unimagdalena.apigateway.filter.factory;
+
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import com.unimagdalena.apigateway.cache.CachePrincipalResolver;
+import com.unimagdalena.apigateway.cache.CacheProperties;
+import com.unimagdalena.apigateway.cache.CacheRefresher;
+import com.unimagdalena.apigateway.ratelimit.RateLimitProperties;
+import com.unimagdalena.apigateway.ratelimit.RateLimiterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitFilterFactoryTest {
+
+    private GatewayFilter filter(Set<String> apiKeys) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setApiKeys(apiKeys);
+        CacheCluster cacheCluster = new CacheCluster(new CacheProperties(), WebClient.builder(), null, null);
+        RateLimitFilterFactory factory = new RateLimitFilterFactory(new RateLimiterRegistry(properties, cacheCluster),
+                properties, new CachePrincipalResolver(token -> Mono.error(new BadJwtException("Firma no válida"))),
+                cacheCluster, new CacheRefresher(WebClient.builder()));
+        return factory.apply(c -> {
+            c.setName("products");
+            c.setRequestsPerSecond(1);
+            c.setBurst(2);
+            c.setKeyType(RateLimitFilterFactory.KeyType.API_KEY);
+        });
+    }
+
+    private static HttpStatusCode send(GatewayFilter filter, String apiKey) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 40000))
+                .header("X-API-Key", apiKey)
+                .build());
+        filter.filter(exchange, forwarded -> {
+            forwarded.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        }).block();
+        return exchange.getResponse().getStatusCode();
+    }
+
+    @Test
+    void shouldNotGiveUnknownApiKeysTheirOwnBucket() {
+        // given
+        GatewayFilter filter = filter(Set.of("key-emitida"));
+
+        // when: una key distinta en cada solicitud
+        send(filter, UUID.randomUUID().toString());
+        send(filter, UUID.randomUUID().toString());
+        HttpStatusCode third = send(filter, UUID.randomUUID().toString());
+
+        // then: todas cuentan en el bucket de la IP
+        assertThat(third).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void shouldGiveKnownApiKeysTheirOwnBucket() {
+        // given
+        GatewayFilter filter = filter(Set.of("key-emitida"));
+        send(filter, "desconocida");
+        send(filter, "desconocida");
+
+        // when
+        HttpStatusCode known = send(filter, "key-emitida");
+
+        // then
+        assertThat(known).isEqualTo(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,179 @@
+package com.unimagdalena.apigateway.filter.global;
+
+import com.unimagdalena.apigateway.hedging.HedgePolicy;
+import com.unimagdalena.apigateway.hedging.LatencyTracker;
+import com.unimagdalena.apigateway.hedging.RetryBudget;
+import com.unimagdalena.apigateway.loadbalancer.InstanceLoadTracker;
+import com.unimagdalena.apigateway.loadbalancer.LoadBalancerProperties;
+import com.unimagdalena.apigateway.loadbalancer.PeakEwmaLoadBalancer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HedgingRoutingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InstanceLoadTracker tracker = new InstanceLoadTracker(new LoadBalancerProperties());
+    private final Map<Integer, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    private ServiceInstance instance(int port, Duration delay, HttpStatus status) {
+        upstreams.put(port, new Upstream(delay, status, new AtomicInteger()));
+        return new DefaultServiceInstance("product-" + port, "product-service", "10.0.0.1", port, false);
+    }
+
+    private int calls(ServiceInstance instance) {
+        return upstreams.get(instance.getPort()).calls().get();
+    }
+
+    private HedgingRoutingFilter filter(ServiceInstance... instances) {
+        PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(
+                ServiceInstanceListSuppliers.toProvider("product-service", instances), "product-service", tracker);
+        return new HedgingRoutingFilter(new ReactiveLoadBalancer.Factory<>() {
+            @Override
+            public ReactiveLoadBalancer<ServiceInstance> getInstance(String serviceId) {
+                return loadBalancer;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <X> Map<String, X> getInstances(String name, Class<X> type) {
+                return (Map<String, X>) Map.of("instanceLoadTracker", tracker);
+            }
+
+            @Override
+            public <X> X getInstance(String name, Class<?> clazz, Class<?>... generics) {
+                return null;
+            }
+        });
+    }
+
+    private HedgePolicy policy(Duration maxHedgeDelay) {
+        return new HedgePolicy("product-service", new LatencyTracker(0.95, 100, 10_000), new RetryBudget(10, 10),
+                Duration.ofMillis(20), maxHedgeDelay, meterRegistry);
+    }
+
+    // Estado que el balanceador deja en el intercambio antes del filtro
+    private static MockServerWebExchange exchange(ServiceInstance chosen, HedgePolicy policy) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1").build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("product-service")
+                .uri("lb://product-service")
+                .predicate(ignored -> true)
+                .build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://10.0.0.1:" + chosen.getPort() + "/api/products/1"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(chosen));
+        exchange.getAttributes().put(HedgePolicy.HEDGE_POLICY_ATTR, policy);
+        return exchange;
+    }
+
+    // Hace las veces de PooledRoutingFilter: responde según la instancia de la URL del intento
+    private GatewayFilterChain routing() {
+        return attempt -> {
+            URI url = attempt.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            Upstream upstream = upstreams.get(url.getPort());
+            upstream.calls().incrementAndGet();
+            return Mono.delay(upstream.delay()).then(Mono.fromRunnable(() -> {
+                if (upstream.status() == null) {
+                    throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Tiempo de respuesta agotado");
+                }
+                ServerWebExchangeUtils.setAlreadyRouted(attempt);
+                attempt.getResponse().setStatusCode(upstream.status());
+                attempt.getResponse().getHeaders().set("X-Instance", String.valueOf(url.getPort()));
+            }));
+        };
+    }
+
+    @Test
+    void shouldHedgeToAnotherInstanceWhenPrimaryIsSlow() {
+        // given
+        ServiceInstance slow = instance(8081, Duration.ofSeconds(2), HttpStatus.OK);
+        ServiceInstance fast = instance(8082, Duration.ZERO, HttpStatus.OK);
+        HedgingRoutingFilter filter = filter(slow, fast);
+        MockServerWebExchange exchange = exchange(slow, policy(Duration.ofMillis(50)));
+
+        // when
+        filter.filter(exchange, routing()).block(Duration.ofSeconds(1));
+
+        // then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Instance")).isEqualTo("8082");
+        assertThat(exchange.getResponse().getHeaders().getFirst(HedgingRoutingFilter.HEDGE_HEADER)).isEqualTo("true");
+        assertThat(exchange.<URI>getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR).getPort()).isEqualTo(8082);
+        assertThat(ServerWebExchangeUtils.isAlreadyRouted(exchange)).isTrue();
+        assertThat(tracker.loadOf(fast).outstanding()).isZero();
+        assertThat(meterRegistry.counter("gateway.hedging.hedges.won", "name", "product-service").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRetryOnceOnServiceUnavailable() {
+        // given
+        ServiceInstance failing = instance(8081, Duration.ZERO, HttpStatus.SERVICE_UNAVAILABLE);
+        ServiceInstance healthy = instance(8082, Duration.ZERO, HttpStatus.OK);
+        HedgingRoutingFilter filter = filter(failing, healthy);
+        MockServerWebExchange exchange = exchange(failing, policy(Duration.ofSeconds(1)));
+
+        // when
+        filter.filter(exchange, routing()).block(Duration.ofSeconds(1));
+
+        // then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(calls(failing)).isEqualTo(1);
+        assertThat(calls(healthy)).isEqualTo(1);
+        assertThat(meterRegistry.counter("gateway.hedging.retries", "name", "product-service").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotHedgeBackToTheInstanceTheBalancerChose() {
+        // given
+        ServiceInstance only = instance(8081, Duration.ofMillis(200), HttpStatus.OK);
+        HedgingRoutingFilter filter = filter(only);
+        MockServerWebExchange exchange = exchange(only, policy(Duration.ofMillis(20)));
+
+        // when
+        filter.filter(exchange, routing()).block(Duration.ofSeconds(1));
+
+        // then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(calls(only)).isEqualTo(1);
+        assertThat(exchange.getResponse().getHeaders().containsKey(HedgingRoutingFilter.HEDGE_HEADER)).isFalse();
+        assertThat(meterRegistry.counter("gateway.hedging.hedges", "name", "product-service").count()).isZero();
+    }
+
+    @Test
+    void shouldPropagatePrimaryErrorWhenNoAttemptAnswers() {
+        // given
+        ServiceInstance timingOut = instance(8081, Duration.ZERO, null);
+        HedgingRoutingFilter filter = filter(timingOut);
+        MockServerWebExchange exchange = exchange(timingOut, policy(Duration.ofMillis(20)));
+
+        // when / then: se reintenta en la única instancia y el error llega al circuit breaker
+        assertThatThrownBy(() -> filter.filter(exchange, routing()).block(Duration.ofSeconds(1)))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(calls(timingOut)).isEqualTo(2);
+    }
+
+    private record Upstream(Duration delay, HttpStatus status, AtomicInteger calls) {
+    }
+}
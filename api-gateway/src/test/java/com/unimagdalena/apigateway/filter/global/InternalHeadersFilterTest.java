@@ -0,0 +1,78 @@
+package com.unimagdalena.apigateway.filter.global;
+
+import com.unimagdalena.apigateway.cache.CacheCluster;
+import com.unimagdalena.apigateway.cache.CacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InternalHeadersFilterTest {
+
+    private final CacheCluster cacheCluster;
+    private final InternalHeadersFilter filter;
+
+    public InternalHeadersFilterTest() {
+        CacheProperties properties = new CacheProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setPeerSecret("secreto-de-replicas");
+        cacheCluster = new CacheCluster(properties, WebClient.builder(), null, null);
+        filter = new InternalHeadersFilter(cacheCluster);
+    }
+
+    private ServerWebExchange forward(MockServerHttpRequest request) {
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        GatewayFilterChain chain = exchange -> {
+            forwarded.set(exchange);
+            return exchange.getResponse().setComplete();
+        };
+        filter.filter(MockServerWebExchange.from(request), chain).block();
+        return forwarded.get();
+    }
+
+    @Test
+    void shouldStripForgedPeerHeadersFromClients() {
+        // given
+        MockServerHttpRequest request = MockServerHttpRequest.get("/api/products/1")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 40000))
+                .header(CacheCluster.PEER_HEADER, "otra-replica")
+                .header(CacheCluster.CLIENT_IP_HEADER, "10.0.0.1")
+                .build();
+
+        // when
+        ServerWebExchange forwarded = forward(request);
+
+        // then
+        assertThat(forwarded.getRequest().getHeaders().containsKey(CacheCluster.PEER_HEADER)).isFalse();
+        assertThat(cacheCluster.isPeerRequest(forwarded.getRequest())).isFalse();
+        assertThat(cacheCluster.clientIp(forwarded.getRequest())).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void shouldKeepSignedPeerRequestsWithOriginalClientIp() {
+        // given
+        MockServerHttpRequest request = MockServerHttpRequest.get("/api/products/1")
+                .remoteAddress(new InetSocketAddress("10.0.0.2", 40000))
+                .header(CacheCluster.PEER_HEADER, "secreto-de-replicas")
+                .header(CacheCluster.CLIENT_IP_HEADER, "203.0.113.7")
+                .build();
+
+        // when
+        ServerWebExchange forwarded = forward(request);
+        HttpHeaders upstream = filter.filter(forwarded.getRequest().getHeaders(), forwarded);
+
+        // then
+        assertThat(cacheCluster.isPeerRequest(forwarded.getRequest())).isTrue();
+        assertThat(cacheCluster.clientIp(forwarded.getRequest())).isEqualTo("203.0.113.7");
+        assertThat(upstream.containsKey(CacheCluster.PEER_HEADER)).isFalse();
+        assertThat(upstream.containsKey(CacheCluster.CLIENT_IP_HEADER)).isFalse();
+    }
+}
@@ -0,0 +1,74 @@
+package com.unimagdalena.apigateway.filter.global;
+
+import com.unimagdalena.apigateway.accesslog.AccessLog;
+import com.unimagdalena.apigateway.accesslog.AccessLogProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TracingFilterTest {
+
+    private final TracingFilter filter = new TracingFilter(new AccessLog(new AccessLogProperties()));
+
+    private static GatewayFilterChain capturing(AtomicReference<ServerWebExchange> forwarded) {
+        return exchange -> {
+            forwarded.set(exchange);
+            return exchange.getResponse().setComplete();
+        };
+    }
+
+    @Test
+    void shouldGenerateIdsAndReturnCorrelationIdInResponse() {
+        // given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1").build());
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+        // when
+        filter.filter(exchange, capturing(forwarded)).block();
+
+        // then
+        String correlationId = forwarded.get().getRequest().getHeaders().getFirst(TracingFilter.CORRELATION_ID_HEADER);
+        assertThat(UUID.fromString(correlationId).version()).isEqualTo(7);
+        assertThat(forwarded.get().getRequest().getHeaders().getFirst(TracingFilter.REQUEST_ID_HEADER))
+                .isEqualTo(correlationId);
+        assertThat(exchange.getResponse().getHeaders().getFirst(TracingFilter.CORRELATION_ID_HEADER))
+                .isEqualTo(correlationId);
+    }
+
+    @Test
+    void shouldReuseIncomingIdsWithoutCopyingRequest() {
+        // given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1")
+                .header(TracingFilter.CORRELATION_ID_HEADER, "corr-123")
+                .header(TracingFilter.REQUEST_ID_HEADER, "req-456")
+                .build());
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+        // when
+        filter.filter(exchange, capturing(forwarded)).block();
+
+        // then
+        assertThat(forwarded.get()).isSameAs(exchange);
+        assertThat(exchange.getResponse().getHeaders().getFirst(TracingFilter.CORRELATION_ID_HEADER))
+                .isEqualTo("corr-123");
+        assertThat((String) exchange.getAttribute(TracingFilter.REQUEST_ID_ATTR)).isEqualTo("req-456");
+    }
+
+    @Test
+    void shouldGenerateTimeOrderedIds() throws InterruptedException {
+        // when
+        String first = TracingFilter.newId();
+        Thread.sleep(2);
+        String second = TracingFilter.newId();
+
+        // then
+        assertThat(first).isLessThan(second);
+    }
+}
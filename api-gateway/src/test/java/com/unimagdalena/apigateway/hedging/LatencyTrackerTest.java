@@ -0,0 +1,40 @@
+package com.unimagdalena.apigateway.hedging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyTrackerTest {
+
+    @Test
+    void shouldEstimatePercentileOnceEnoughSamples() {
+        // given
+        LatencyTracker tracker = new LatencyTracker(0.95, 100, 100_000);
+        assertThat(tracker.percentileMicros()).isEqualTo(-1);
+
+        // when: 90 % responde en ~10 ms y 10 % en ~200 ms
+        for (int i = 0; i < 1_280; i++) {
+            tracker.record(i % 10 == 0 ? 200_000 : 10_000);
+        }
+
+        // then: el p95 cae en la cola lenta, con el error relativo de un bucket (25 %)
+        assertThat(tracker.percentileMicros()).isBetween(200_000L, 250_000L);
+    }
+
+    @Test
+    void shouldFollowRecentLatencyAfterDecay() {
+        // given
+        LatencyTracker tracker = new LatencyTracker(0.5, 10, 256);
+        for (int i = 0; i < 256; i++) {
+            tracker.record(100_000);
+        }
+
+        // when
+        for (int i = 0; i < 1_024; i++) {
+            tracker.record(1_000);
+        }
+
+        // then
+        assertThat(tracker.percentileMicros()).isLessThan(2_000L);
+    }
+}
@@ -0,0 +1,43 @@
+package com.unimagdalena.apigateway.hedging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RetryBudgetTest {
+
+    @Test
+    void shouldLimitRetriesToPercentOfTraffic() {
+        // given
+        RetryBudget budget = new RetryBudget(10, 2);
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+
+        // when
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        boolean beforeTenth = budget.tryWithdraw();
+        budget.deposit();
+        boolean afterTenth = budget.tryWithdraw();
+
+        // then
+        assertThat(beforeTenth).isFalse();
+        assertThat(afterTenth).isTrue();
+    }
+
+    @Test
+    void shouldCapBalanceAtReserve() {
+        // given
+        RetryBudget budget = new RetryBudget(50, 3);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        // then
+        assertThat(budget.availableTokens()).isEqualTo(3.0);
+    }
+}
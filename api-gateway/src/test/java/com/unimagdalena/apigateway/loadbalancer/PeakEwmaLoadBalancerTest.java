@@ -0,0 +1,90 @@
+package com.unimagdalena.apigateway.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PeakEwmaLoadBalancerTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final InstanceLoadTracker tracker = new InstanceLoadTracker(new LoadBalancerProperties());
+    private final PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(null, "product-service", tracker);
+
+    private static ServiceInstance instance(int port) {
+        return new DefaultServiceInstance("product-" + port, "product-service", "10.0.0.1", port, false);
+    }
+
+    @Test
+    void shouldAvoidInstanceWithLatencyPeak() {
+        // given
+        ServiceInstance fast = instance(8081);
+        ServiceInstance slow = instance(8082);
+        long now = System.nanoTime();
+        tracker.loadOf(fast).start();
+        tracker.loadOf(fast).complete(10 * MILLIS, now);
+        tracker.loadOf(slow).start();
+        tracker.loadOf(slow).complete(900 * MILLIS, now);
+
+        // when
+        int slowChoices = 0;
+        for (int i = 0; i < 100; i++) {
+            if (balancer.choose(List.of(fast, slow)).getServer() == slow) {
+                slowChoices++;
+            }
+        }
+
+        // then
+        assertThat(slowChoices).isZero();
+    }
+
+    @Test
+    void shouldSpreadOutstandingRequestsAcrossEqualInstances() {
+        // given
+        ServiceInstance first = instance(8081);
+        ServiceInstance second = instance(8082);
+
+        // when: cada elección queda en curso y encarece a la instancia elegida
+        for (int i = 0; i < 10; i++) {
+            tracker.loadOf(balancer.choose(List.of(first, second)).getServer()).start();
+        }
+
+        // then
+        assertThat(tracker.loadOf(first).outstanding()).isEqualTo(5);
+        assertThat(tracker.loadOf(second).outstanding()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldRecoverAfterPeakDecays() {
+        // given
+        InstanceLoad load = new InstanceLoad(10_000 * MILLIS, 50 * MILLIS, 0);
+        load.start();
+        load.complete(2_000 * MILLIS, 0);
+
+        // when
+        double afterPeak = load.cost(0);
+        double thirtySecondsLater = load.cost(30_000 * MILLIS);
+
+        // then
+        assertThat(afterPeak).isEqualTo(2_000.0 * MILLIS);
+        assertThat(thirtySecondsLater).isLessThan(100.0 * MILLIS);
+    }
+
+    @Test
+    void shouldForgetDeregisteredInstances() {
+        // given
+        ServiceInstance kept = instance(8081);
+        tracker.loadOf(kept);
+        tracker.loadOf(instance(8082));
+
+        // when
+        tracker.retain("product-service", List.of(kept));
+
+        // then
+        assertThat(tracker.size()).isEqualTo(1);
+    }
+}
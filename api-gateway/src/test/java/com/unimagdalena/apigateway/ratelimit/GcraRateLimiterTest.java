@@ -0,0 +1,88 @@
+package com.unimagdalena.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GcraRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void shouldAllowBurstThenRejectUntilTokensRefill() {
+        // given
+        GcraRateLimiter limiter = new GcraRateLimiter("orders", 2, 3, 100);
+        long now = 10 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("sub:alice", now, 1).isAllowed()).isTrue();
+        }
+
+        // when
+        GcraRateLimiter.Decision rejected = limiter.tryAcquire("sub:alice", now, 1);
+        GcraRateLimiter.Decision otherClient = limiter.tryAcquire("sub:bob", now, 1);
+        GcraRateLimiter.Decision afterRefill = limiter.tryAcquire("sub:alice", now + SECOND / 2, 1);
+
+        // then
+        assertThat(rejected.isAllowed()).isFalse();
+        assertThat(rejected.getRemaining()).isZero();
+        assertThat(rejected.getRetryAfterSeconds()).isEqualTo(1);
+        assertThat(otherClient.isAllowed()).isTrue();
+        assertThat(otherClient.getRemaining()).isEqualTo(2);
+        assertThat(afterRefill.isAllowed()).isTrue();
+    }
+
+    @Test
+    void shouldSplitQuotaAcrossReplicas() {
+        // given
+        GcraRateLimiter limiter = new GcraRateLimiter("orders", 10, 4, 100);
+        long now = 10 * SECOND;
+
+        // when
+        boolean first = limiter.tryAcquire("ip:10.0.0.1", now, 2).isAllowed();
+        boolean second = limiter.tryAcquire("ip:10.0.0.1", now, 2).isAllowed();
+        boolean third = limiter.tryAcquire("ip:10.0.0.1", now, 2).isAllowed();
+
+        // then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+    }
+
+    @Test
+    void shouldEvictIdleBuckets() {
+        // given
+        GcraRateLimiter limiter = new GcraRateLimiter("products", 1, 1, 10);
+        long now = 10 * SECOND;
+        limiter.tryAcquire("ip:1", now, 1);
+        limiter.tryAcquire("ip:2", now, 1);
+
+        // when
+        int evicted = limiter.evictIdle(now + 2 * SECOND);
+
+        // then
+        assertThat(evicted).isEqualTo(2);
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void shouldEvictLeastUsedBucketWhenFullInsteadOfSharingOne() {
+        // given: ip:1 agota su ráfaga, ip:2 sólo usa un token
+        GcraRateLimiter limiter = new GcraRateLimiter("products", 1, 4, 2);
+        long now = 10 * SECOND;
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire("ip:1", now, 1);
+        }
+        limiter.tryAcquire("ip:2", now, 1);
+
+        // when
+        boolean newcomer = limiter.tryAcquire("ip:3", now, 1).isAllowed();
+        boolean heavyUser = limiter.tryAcquire("ip:1", now, 1).isAllowed();
+        boolean anotherNewcomer = limiter.tryAcquire("ip:4", now, 1).isAllowed();
+
+        // then
+        assertThat(newcomer).isTrue();
+        assertThat(heavyUser).isFalse();
+        assertThat(anotherNewcomer).isTrue();
+        assertThat(limiter.size()).isEqualTo(2);
+    }
+}
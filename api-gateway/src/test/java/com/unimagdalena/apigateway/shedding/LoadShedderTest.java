@@ -0,0 +1,85 @@
+package com.unimagdalena.apigateway.shedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadShedderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LoadShedder shedder(int maxConcurrent) {
+        LoadSheddingProperties properties = new LoadSheddingProperties();
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.getClasses().put(PriorityClass.LOW, new LoadSheddingProperties.ClassLimits(0.5, 1, Duration.ofSeconds(5)));
+        properties.getClasses().put(PriorityClass.CRITICAL, new LoadSheddingProperties.ClassLimits(1.0, 10, Duration.ofSeconds(5)));
+        return new LoadShedder(properties, meterRegistry);
+    }
+
+    @Test
+    void shouldReserveCapacityForHigherClasses() {
+        // given
+        LoadShedder shedder = shedder(4);
+        assertThat(shedder.acquire(PriorityClass.LOW).block()).isTrue();
+        assertThat(shedder.acquire(PriorityClass.LOW).block()).isTrue();
+
+        // when: la navegación ya ocupa su mitad; la compra sigue entrando
+        Boolean critical = shedder.acquire(PriorityClass.CRITICAL).block();
+        AtomicReference<Boolean> queuedLow = new AtomicReference<>();
+        shedder.acquire(PriorityClass.LOW).subscribe(queuedLow::set);
+        Boolean shedLow = shedder.acquire(PriorityClass.LOW).block();
+
+        // then
+        assertThat(critical).isTrue();
+        assertThat(queuedLow.get()).isNull();
+        assertThat(shedLow).isFalse();
+        assertThat(shedder.queueSize(PriorityClass.LOW)).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.shedding.requests").tag("priority", "low").tag("outcome", "shed")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldServeHigherClassQueueFirst() {
+        // given
+        LoadShedder shedder = shedder(2);
+        shedder.acquire(PriorityClass.CRITICAL).block();
+        shedder.acquire(PriorityClass.CRITICAL).block();
+        List<PriorityClass> order = new ArrayList<>();
+        shedder.acquire(PriorityClass.LOW).subscribe(admitted -> order.add(PriorityClass.LOW));
+        shedder.acquire(PriorityClass.CRITICAL).subscribe(admitted -> order.add(PriorityClass.CRITICAL));
+
+        // when
+        shedder.release();
+        shedder.release();
+
+        // then: la segunda liberación deja 1 en curso, justo el límite de LOW (50 % de 2)
+        assertThat(order).containsExactly(PriorityClass.CRITICAL);
+        shedder.release();
+        assertThat(order).containsExactly(PriorityClass.CRITICAL, PriorityClass.LOW);
+        assertThat(shedder.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShedQueuedRequestAfterMaxWait() {
+        // given
+        LoadSheddingProperties properties = new LoadSheddingProperties();
+        properties.setMaxConcurrent(1);
+        properties.getClasses().put(PriorityClass.NORMAL, new LoadSheddingProperties.ClassLimits(1.0, 5, Duration.ofMillis(20)));
+        LoadShedder shedder = new LoadShedder(properties, meterRegistry);
+        shedder.acquire(PriorityClass.NORMAL).block();
+
+        // when
+        Boolean admitted = shedder.acquire(PriorityClass.NORMAL).block();
+
+        // then
+        assertThat(admitted).isFalse();
+        assertThat(shedder.queueSize(PriorityClass.NORMAL)).isZero();
+        assertThat(shedder.inFlight()).isEqualTo(1);
+    }
+}
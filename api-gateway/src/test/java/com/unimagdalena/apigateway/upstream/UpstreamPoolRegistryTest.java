@@ -0,0 +1,82 @@
+package com.unimagdalena.apigateway.upstream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UpstreamPoolRegistryTest {
+
+    private final UpstreamPoolRegistry registry = new UpstreamPoolRegistry();
+    private DisposableServer server;
+
+    @AfterEach
+    void tearDown() {
+        registry.stop();
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private static Route route(String id, Map<String, Object> metadata) {
+        return Route.async()
+                .id(id)
+                .uri("lb://" + id)
+                .predicate(ignored -> true)
+                .metadata(metadata)
+                .build();
+    }
+
+    @Test
+    void shouldGiveEachRouteItsOwnClientAndResponseTimeout() {
+        // given
+        Map<String, Object> payments = registry.define(pool -> {
+            pool.setName("payment-service");
+            pool.setResponseTimeout(Duration.ofSeconds(8));
+        });
+        Map<String, Object> products = registry.define(pool -> pool.setName("product-service"));
+
+        // when
+        HttpClient paymentClient = registry.clientFor(route("payment-service", payments));
+        HttpClient productClient = registry.clientFor(route("product-service", products));
+        HttpClient defaultClient = registry.clientFor(route("keycloak", Map.of()));
+
+        // then
+        assertThat(payments).containsEntry(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR, 8_000L);
+        assertThat(paymentClient).isNotNull().isNotSameAs(productClient);
+        assertThat(defaultClient).isNull();
+    }
+
+    @Test
+    void shouldSpeakH2cWithServicesThatSupportIt() {
+        // given
+        server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+                .handle((request, response) -> response.sendString(Mono.just(request.version().text())))
+                .bindNow();
+        Map<String, Object> metadata = registry.define(pool -> pool.setName("product-service"));
+        HttpClient client = registry.clientFor(route("product-service", metadata));
+
+        // when
+        String version = client.get()
+                .uri("http://localhost:" + server.port() + "/api/products/1")
+                .responseContent()
+                .aggregate()
+                .asString()
+                .block(Duration.ofSeconds(5));
+
+        // then
+        assertThat(version).isEqualTo("HTTP/2.0");
+    }
+}
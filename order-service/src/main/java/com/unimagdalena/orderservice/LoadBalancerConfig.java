@@ -0,0 +1,14 @@
+package com.unimagdalena.orderservice;
+
+import com.unimagdalena.orderservice.loadbalancer.LoadBalancerProperties;
+import com.unimagdalena.orderservice.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+// El cliente Feign de inventario elige instancia por latencia y carga en lugar de round-robin
+@Configuration
+@EnableConfigurationProperties(LoadBalancerProperties.class)
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
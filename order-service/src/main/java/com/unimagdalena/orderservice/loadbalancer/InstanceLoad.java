@@ -0,0 +1,53 @@
+package com.unimagdalena.orderservice.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carga observada de una instancia: solicitudes en curso y latencia EWMA con pico. Una muestra
+ * más lenta que la media la reemplaza de inmediato; las más rápidas sólo la bajan poco a poco,
+ * así que una instancia que se pausa deja de recibir tráfico enseguida y lo recupera al estabilizarse.
+ */
+public class InstanceLoad {
+
+    private final long decayNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private double ewmaNanos;
+    private long updatedAt;
+
+    public InstanceLoad(long decayNanos, long initialLatencyNanos, long now) {
+        this.decayNanos = decayNanos;
+        this.ewmaNanos = initialLatencyNanos;
+        this.updatedAt = now;
+    }
+
+    public void start() {
+        outstanding.incrementAndGet();
+    }
+
+    public synchronized void complete(long latencyNanos, long now) {
+        outstanding.updateAndGet(current -> Math.max(0, current - 1));
+        double weight = weight(now);
+        ewmaNanos = latencyNanos > ewmaNanos
+                ? latencyNanos
+                : ewmaNanos * weight + latencyNanos * (1 - weight);
+        updatedAt = now;
+    }
+
+    // Costo estimado de enviarle una solicitud más: latencia esperada por las que ya esperan
+    public synchronized double cost(long now) {
+        return decayed(now) * (outstanding.get() + 1);
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    // Sin muestras nuevas, un pico se olvida con el tiempo y la instancia vuelve a recibir tráfico
+    private double decayed(long now) {
+        return ewmaNanos * weight(now);
+    }
+
+    private double weight(long now) {
+        return Math.exp(-Math.max(0, now - updatedAt) / (double) decayNanos);
+    }
+}
@@ -0,0 +1,20 @@
+package com.unimagdalena.orderservice.loadbalancer;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.load-balancer")
+public class LoadBalancerProperties {
+
+    // Tiempo en el que el peso de una latencia pasada cae a 1/e
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    // Latencia supuesta de una instancia sin muestras (recién registrada)
+    private Duration initialLatency = Duration.ofMillis(50);
+
+    // Latencia que se registra cuando la solicitud falla: aleja el tráfico de la instancia
+    private Duration failurePenalty = Duration.ofSeconds(2);
+}
@@ -0,0 +1,13 @@
+package com.unimagdalena.productservice.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationRequest {
+    private List<String> tags;
+
+}
@@ -0,0 +1,66 @@
+package com.unimagdalena.productservice.event;
+
+import com.unimagdalena.productservice.dto.CacheInvalidationRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Avisa a cada instancia del api-gateway registrada en Eureka que elimine del caché
+ * las respuestas del producto modificado y los listados de productos.
+ */
+@Slf4j
+@Component
+public class GatewayCacheInvalidator {
+
+    private static final String GATEWAY_SERVICE_ID = "api-gateway";
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    // El gateway rechaza las invalidaciones sin este token
+    private static final String ADMIN_TOKEN_HEADER = "X-Cache-Admin-Token";
+
+    private final DiscoveryClient discoveryClient;
+    private final WebClient webClient;
+    private final String adminToken;
+
+    public GatewayCacheInvalidator(DiscoveryClient discoveryClient,
+                                   @Value("${gateway.cache.admin-token:}") String adminToken) {
+        this.discoveryClient = discoveryClient;
+        this.webClient = WebClient.builder().build();
+        this.adminToken = adminToken;
+        if (adminToken.isBlank()) {
+            log.warn("Sin gateway.cache.admin-token: el gateway rechazará las invalidaciones de caché");
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        List<String> tags = new ArrayList<>();
+        tags.add("products:list");
+        if (event.getType() != ProductChangedEvent.Type.CREATED) {
+            tags.add("product:" + event.getProductId());
+        }
+        CacheInvalidationRequest request = new CacheInvalidationRequest(tags);
+
+        for (ServiceInstance instance : discoveryClient.getInstances(GATEWAY_SERVICE_ID)) {
+            webClient.post()
+                    .uri(instance.getUri().resolve("/admin/cache/invalidate"))
+                    .header(ADMIN_TOKEN_HEADER, adminToken)
+                    .bodyValue(request)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(TIMEOUT)
+                    .subscribe(
+                            response -> log.debug("Caché de {} invalidado para {}", instance.getUri(), tags),
+                            error -> log.warn("No se pudo invalidar el caché de {}: {}",
+                                    instance.getUri(), error.getMessage()));
+        }
+    }
+}
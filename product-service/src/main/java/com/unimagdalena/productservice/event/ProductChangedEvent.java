@@ -0,0 +1,17 @@
+package com.unimagdalena.productservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Se publica después de que una escritura sobre un producto se completa con éxito.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final String productId;
+    private final Type type;
+}
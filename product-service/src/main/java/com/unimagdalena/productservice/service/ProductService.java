@@ -3,6 +3,8 @@ package com.unimagdalena.productservice.service;
 import com.unimagdalena.productservice.entity.Product;
 import com.unimagdalena.productservice.repository.ProductRepository;
 import com.unimagdalena.productservice.dto.InventoryCreateRequest;
+import com.unimagdalena.productservice.event.ProductChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
@@ -16,9 +18,11 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final WebClient webClient;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
         this.webClient = WebClient.builder().baseUrl("http://inventory-service:8082").build();
     }
 
@@ -48,7 +52,8 @@ public class ProductService {
                         .retrieve()
                         .bodyToMono(Void.class)
                         .thenReturn(savedProduct);
-                });
+                })
+                .doOnNext(savedProduct -> publishChange(savedProduct.getId(), ProductChangedEvent.Type.CREATED));
     }
 
     public Mono<Product> updateProduct(String id, Product product) {
@@ -58,13 +63,19 @@ public class ProductService {
                 return Mono.just(productRepository.save(product));
             }
             return Mono.empty();
-        }).subscribeOn(Schedulers.boundedElastic());
+        }).subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(savedProduct -> publishChange(id, ProductChangedEvent.Type.UPDATED));
     }
 
     public Mono<Void> deleteProduct(String id) {
         return Mono.defer(() -> {
             productRepository.deleteById(id);
             return Mono.empty();
-        }).subscribeOn(Schedulers.boundedElastic()).then();
+        }).subscribeOn(Schedulers.boundedElastic()).then()
+                .doOnSuccess(ignored -> publishChange(id, ProductChangedEvent.Type.DELETED));
+    }
+
+    private void publishChange(String id, ProductChangedEvent.Type type) {
+        eventPublisher.publishEvent(new ProductChangedEvent(id, type));
     }
 }
\ No newline at end of file
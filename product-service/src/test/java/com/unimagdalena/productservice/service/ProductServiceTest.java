@@ -1,12 +1,14 @@
 package com.unimagdalena.productservice.service;
 
 import com.unimagdalena.productservice.entity.Product;
+import com.unimagdalena.productservice.event.ProductChangedEvent;
 import com.unimagdalena.productservice.repository.ProductRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
@@ -25,6 +27,9 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ProductService productService;
 
@@ -188,6 +193,7 @@ public class ProductServiceTest {
 
         verify(productRepository, times(1)).existsById(uuid);
         verify(productRepository, never()).save(any(Product.class));
+        verify(eventPublisher, never()).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
@@ -201,5 +207,6 @@ public class ProductServiceTest {
                 .verifyComplete();
 
         verify(productRepository, times(1)).deleteById(uuid);
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangedEvent.class));
     }
 }